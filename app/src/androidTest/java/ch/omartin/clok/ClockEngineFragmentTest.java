@@ -0,0 +1,110 @@
+package ch.omartin.clok;
+
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.os.Looper;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.test.runner.lifecycle.ActivityLifecycleMonitorRegistry;
+import android.support.test.runner.lifecycle.Stage;
+import android.support.v4.app.FragmentActivity;
+import android.util.Printer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * the retained fragment keeps one engine and one pending tick across recreations of the activity
+ */
+@RunWith(AndroidJUnit4.class)
+public class ClockEngineFragmentTest
+{
+	private static final int NBR_RECREATES = 10;
+
+	@Rule
+	public final ActivityTestRule<MainActivity> activityRule = new ActivityTestRule<>(MainActivity.class);
+
+	@Test
+	public void recreate_keepsEngineAndOneTick()
+	{
+		Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+		ClockEngine engine = getEngine(instrumentation);
+
+		assertEquals(1, countPendingTicks(instrumentation));
+
+		for(int i=0; i<NBR_RECREATES; i++)
+		{
+			// what a rotation does, the activity is destroyed while changing configurations
+			instrumentation.runOnMainSync(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					getResumedActivity().recreate();
+				}
+			});
+			instrumentation.waitForIdleSync();
+
+			assertSame(engine, getEngine(instrumentation));
+			assertEquals(1, countPendingTicks(instrumentation));
+		}
+	}
+
+	private static ClockEngine getEngine(Instrumentation instrumentation)
+	{
+		final ClockEngine[] engine = new ClockEngine[1];
+
+		instrumentation.runOnMainSync(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				engine[0] = ClockEngineFragment.get((FragmentActivity) getResumedActivity()).getEngine();
+			}
+		});
+
+		return engine[0];
+	}
+
+	/**
+	 * @return ticks of the engine waiting in the queue of the main looper, read from its dump
+	 */
+	private static int countPendingTicks(Instrumentation instrumentation)
+	{
+		final String callback = "callback=" + ClockEngine.class.getName() + "$TickRunnable";
+		final int[] nbrTicks = new int[1];
+
+		instrumentation.runOnMainSync(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				Looper.getMainLooper().dump(new Printer()
+				{
+					@Override
+					public void println(String line)
+					{
+						if(line.contains(callback))
+						{
+							nbrTicks[0]++;
+						}
+					}
+				}, "");
+			}
+		});
+
+		return nbrTicks[0];
+	}
+
+	/**
+	 * main thread only
+	 */
+	private static Activity getResumedActivity()
+	{
+		return ActivityLifecycleMonitorRegistry.getInstance().getActivitiesInStage(Stage.RESUMED).iterator().next();
+	}
+}
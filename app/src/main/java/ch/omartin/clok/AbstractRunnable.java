@@ -1,22 +1,42 @@
 package ch.omartin.clok;
 
-import android.os.Handler;
+import android.os.Debug;
 import android.util.Log;
 
 /**
- * parent class of runnables
+ * parent class of runnables, accounts each wake-up in {@link PowerStats}
  */
 abstract class AbstractRunnable implements Runnable
 {
-	private final Handler handler;
+	private final Scheduler scheduler;
 	private final int delay;
+	private final String source;
+	private final PowerStats powerStats;
 
-	AbstractRunnable(Handler handler, int delay)
+	AbstractRunnable(Scheduler scheduler, int delay, String source, PowerStats powerStats)
 	{
-		this.handler = handler;
+		this.scheduler = scheduler;
 		this.delay = delay;
+		this.source = source;
+		this.powerStats = powerStats;
 	}
 
+	@Override
+	public final void run()
+	{
+		long start = Debug.threadCpuTimeNanos();
+		boolean changed = tick();
+		long cpuNanos = Debug.threadCpuTimeNanos() - start;
+
+		this.powerStats.recordWakeup(this.source, !changed, cpuNanos);
+	}
+
+	/**
+	 * work done on each wake-up
+	 * @return true if something visible changed
+	 */
+	abstract boolean tick();
+
 	void postRunnable()
 	{
 		postRunnable(false);
@@ -24,20 +44,44 @@ abstract class AbstractRunnable implements Runnable
 
 	void postRunnable(boolean delay)
 	{
-		boolean result;
-
-		if(!delay)
+		if(!scheduler.post(this, delay ? this.delay : 0))
 		{
-			result = handler.post(this);
+			Log.e("runnable result", "could not be posted");
 		}
-		else
+	}
+
+	/**
+	 * post with a delay other than the default one
+	 * @param delayMillis delay in millis
+	 */
+	void postRunnableDelayed(long delayMillis)
+	{
+		if(!scheduler.post(this, delayMillis))
 		{
-			result = handler.postDelayed(this, this.delay);
+			Log.e("runnable result", "could not be posted");
 		}
+	}
+
+	/**
+	 * post at a given wall clock time, e.g. the next full second, so that rendering and sound share the same time base
+	 * @param targetTimeMillis when to run, in displayed time
+	 * @param currentTimeMillis current displayed time
+	 */
+	void postRunnableAt(long targetTimeMillis, long currentTimeMillis)
+	{
+		long delayMillis = Math.max(0, targetTimeMillis - currentTimeMillis);
 
-		if(!result)
+		if(!scheduler.post(this, delayMillis))
 		{
 			Log.e("runnable result", "could not be posted");
 		}
 	}
+
+	/**
+	 * remove the pending post, if any
+	 */
+	void cancel()
+	{
+		scheduler.remove(this);
+	}
 }
@@ -0,0 +1,60 @@
+package ch.omartin.clok;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+
+/**
+ * battery level, read from the sticky battery broadcast without registering a receiver
+ */
+class BatteryComplication extends Complication
+{
+	private final Context context;
+	private final IntentFilter filter = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
+	private final String title;
+	private int level = -1;
+	private boolean isCharging = false;
+
+	BatteryComplication(ComplicationSlot slot, Context context)
+	{
+		super(slot, MINUTE);
+
+		this.context = context.getApplicationContext();
+		this.title = context.getString(R.string.complication_battery);
+	}
+
+	@Override
+	public boolean update(long timeMillis)
+	{
+		Intent intent = this.context.registerReceiver(null, this.filter);
+
+		if(intent == null)
+		{
+			return false;
+		}
+
+		int level = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+		int scale = intent.getIntExtra(BatteryManager.EXTRA_SCALE, 100);
+		int status = intent.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+		int percent = scale > 0 ? (level * 100) / scale : -1;
+		boolean isCharging = status == BatteryManager.BATTERY_STATUS_CHARGING || status == BatteryManager.BATTERY_STATUS_FULL;
+		boolean changed = percent != this.level || isCharging != this.isCharging;
+
+		this.level = percent;
+		this.isCharging = isCharging;
+
+		return changed;
+	}
+
+	@Override
+	protected String[] getLines()
+	{
+		if(this.level < 0)
+		{
+			return new String[0];
+		}
+
+		return new String[] {this.title, this.level + "%" + (this.isCharging ? " +" : "")};
+	}
+}
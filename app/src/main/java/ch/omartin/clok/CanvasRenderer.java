@@ -0,0 +1,140 @@
+package ch.omartin.clok;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+
+/**
+ * renderer drawing on an android canvas, paints and text metrics come from the render cache shared by the ui thread
+ */
+class CanvasRenderer implements Renderer
+{
+	private final RenderCache cache;
+	private final RectF oval = new RectF();
+	private final Path path = new Path();
+
+	private Canvas canvas;
+	private int width;
+	private int height;
+
+	CanvasRenderer(RenderCache cache)
+	{
+		this.cache = cache;
+	}
+
+	/**
+	 * @param canvas where the next calls draw, its size is the size of the dial
+	 */
+	void setCanvas(Canvas canvas)
+	{
+		if(canvas == null)
+		{
+			setCanvas(null, 0, 0);
+		}
+		else
+		{
+			setCanvas(canvas, canvas.getWidth(), canvas.getHeight());
+		}
+	}
+
+	/**
+	 * @param canvas where the next calls draw
+	 * @param width width of the dial, in canvas units
+	 * @param height height of the dial, in canvas units
+	 */
+	void setCanvas(Canvas canvas, int width, int height)
+	{
+		this.canvas = canvas;
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * @return the android paint matching the brush
+	 */
+	Paint getPaint(Brush brush)
+	{
+		return this.cache.getPaint(brush);
+	}
+
+	@Override
+	public int getWidth()
+	{
+		return this.width;
+	}
+
+	@Override
+	public int getHeight()
+	{
+		return this.height;
+	}
+
+	@Override
+	public void save()
+	{
+		this.canvas.save();
+	}
+
+	@Override
+	public void restore()
+	{
+		this.canvas.restore();
+	}
+
+	@Override
+	public void translate(float dx, float dy)
+	{
+		this.canvas.translate(dx, dy);
+	}
+
+	@Override
+	public void rotate(float degrees)
+	{
+		this.canvas.rotate(degrees);
+	}
+
+	@Override
+	public void drawRect(float left, float top, float right, float bottom, Brush brush)
+	{
+		this.canvas.drawRect(left, top, right, bottom, getPaint(brush));
+	}
+
+	@Override
+	public void drawCircle(float centerX, float centerY, float radius, Brush brush)
+	{
+		this.canvas.drawCircle(centerX, centerY, radius, getPaint(brush));
+	}
+
+	@Override
+	public void drawLine(float startX, float startY, float endX, float endY, Brush brush)
+	{
+		this.canvas.drawLine(startX, startY, endX, endY, getPaint(brush));
+	}
+
+	@Override
+	public void drawText(String text, float x, float y, Brush brush)
+	{
+		this.canvas.drawText(text, x, y, getPaint(brush));
+	}
+
+	@Override
+	public void getTextBounds(String text, Brush brush, int[] bounds)
+	{
+		this.cache.getTextBounds(text, brush, bounds);
+	}
+
+	@Override
+	public void fillSector(float radius, float startDegrees, float sweepDegrees, Brush brush)
+	{
+		this.oval.set(-radius, -radius, radius, radius);
+		this.path.reset();
+		this.path.moveTo(0, 0);
+		// android arcs start at 3 o'clock
+		this.path.arcTo(this.oval, startDegrees - 90, sweepDegrees, true);
+		this.path.lineTo(0, 0);
+		this.path.close();
+
+		this.canvas.drawPath(this.path, getPaint(brush));
+	}
+}
@@ -0,0 +1,372 @@
+package ch.omartin.clok;
+
+import android.util.Log;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * time state of the clock and its single scheduler. outlives the views: a view attaches to it and is told what to
+ * redraw, a new view after a rotation attaches to the same engine and draws the cached time right away.
+ */
+class ClockEngine
+{
+	private final String pattern = "dd.MM.yyyy H:mm:ss";
+	private final SimpleDateFormat formatter = new SimpleDateFormat(this.pattern, Locale.getDefault());
+
+	private final WallClock wallClock;
+	private final TickMode tickMode;
+	private final boolean isSecondHandDrawn;
+	private final TimeZone zone = TimeZone.getDefault();
+	private final TimeDiscipline timeDiscipline = new TimeDiscipline();
+	private final List<ScheduledComplication> complications = new ArrayList<>();
+	private final List<Complication> publicComplications;
+	private final TickRunnable tickRunnable;
+
+	private volatile Calendar calendar;
+	private volatile int hours;
+	private volatile int minutes;
+	private volatile int seconds;
+	private volatile long handsTime;
+
+	private Display display;
+	private boolean isStarted = false;
+
+	/**
+	 * what the engine redraws, the view currently attached
+	 */
+	interface Display
+	{
+		/**
+		 * the hands moved, everything is redrawn
+		 */
+		void onInvalidate();
+
+		/**
+		 * only a complication changed
+		 * @param index index of the complication in {@link #getComplications()}
+		 */
+		void onInvalidateComplication(int index);
+	}
+
+	/**
+	 * @param scheduler where the ticks are posted
+	 * @param wallClock where the time is read
+	 * @param powerStats where the wake-ups are accounted
+	 * @param tickMode 12 or 24 hour mode
+	 * @param isSecondHandDrawn ticks every second if true, every minute otherwise
+	 * @param complications complications to update, in their slots
+	 */
+	ClockEngine(Scheduler scheduler, WallClock wallClock, PowerStats powerStats, TickMode tickMode,
+			boolean isSecondHandDrawn, List<Complication> complications)
+	{
+		this.wallClock = wallClock;
+		this.tickMode = tickMode;
+		this.isSecondHandDrawn = isSecondHandDrawn;
+		this.publicComplications = Collections.unmodifiableList(new ArrayList<>(complications));
+
+		for(Complication complication : complications)
+		{
+			this.complications.add(new ScheduledComplication(complication));
+		}
+
+		int delay = isSecondHandDrawn ? (int) Complication.SECOND : (int) Complication.MINUTE;
+		this.tickRunnable = new TickRunnable(scheduler, delay, powerStats);
+	}
+
+	/**
+	 * start ticking, the first tick synchronizes. does nothing if already started.
+	 */
+	void start()
+	{
+		if(!this.isStarted)
+		{
+			this.isStarted = true;
+			this.tickRunnable.postRunnable();
+		}
+	}
+
+	/**
+	 * remove the pending tick, the next start synchronizes again
+	 */
+	void stop()
+	{
+		this.isStarted = false;
+		this.tickRunnable.cancel();
+		this.tickRunnable.reset();
+	}
+
+	/**
+	 * make the display the one redrawn on each tick, it is asked to draw the current state right away if synchronized
+	 */
+	void attach(Display display)
+	{
+		this.display = display;
+
+		if(this.calendar != null)
+		{
+			display.onInvalidate();
+		}
+	}
+
+	/**
+	 * @param display the display to detach, nothing happens if another one was attached since
+	 */
+	void detach(Display display)
+	{
+		if(this.display == display)
+		{
+			this.display = null;
+		}
+	}
+
+	/**
+	 * ask the attached display for a full redraw, e.g. once a render cache is ready
+	 */
+	void redraw()
+	{
+		if(this.display != null)
+		{
+			this.display.onInvalidate();
+		}
+	}
+
+	TickMode getTickMode()
+	{
+		return this.tickMode;
+	}
+
+	TimeDiscipline getTimeDiscipline()
+	{
+		return this.timeDiscipline;
+	}
+
+	List<Complication> getComplications()
+	{
+		return this.publicComplications;
+	}
+
+	boolean isSynchronized()
+	{
+		return this.calendar != null;
+	}
+
+	int getHours()
+	{
+		return this.hours;
+	}
+
+	int getMinutes()
+	{
+		return this.minutes;
+	}
+
+	int getSeconds()
+	{
+		return this.seconds;
+	}
+
+	/**
+	 * @return boundary shown by the hands, in the time of {@link #currentTimeMillis()}
+	 */
+	long getHandsTime()
+	{
+		return this.handsTime;
+	}
+
+	/**
+	 * @return local time corrected by the SNTP offset, if any
+	 */
+	long currentTimeMillis()
+	{
+		long localTime = this.wallClock.currentTimeMillis();
+
+		return localTime + this.timeDiscipline.getOffset(localTime);
+	}
+
+	/**
+	 * packs the time as it is displayed by the hands
+	 * @return a value that changes only when a hand moves
+	 */
+	int getVisibleState()
+	{
+		int secondsState = this.isSecondHandDrawn ? this.seconds : 0;
+
+		return (((this.hours * 60) + this.minutes) * 60) + secondsState;
+	}
+
+	/**
+	 * sync with internal clock
+	 * @param timeMillis displayed time
+	 */
+	private synchronized void synchronize(final long timeMillis)
+	{
+		// use this date for the next cycle until next sync.
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTimeInMillis(timeMillis);
+		this.minutes = calendar.get(Calendar.MINUTE);
+		this.seconds = calendar.get(Calendar.SECOND);
+		final Date date = calendar.getTime();
+
+		if(this.tickMode == TickMode.MODE_24)
+		{
+			this.hours = calendar.get(Calendar.HOUR_OF_DAY);
+		}
+		else
+		{
+			this.hours = calendar.get(Calendar.HOUR);
+		}
+
+		this.calendar = calendar;
+
+		Log.d("sync ", this.formatter.format(date));
+	}
+
+	/**
+	 * increment seconds and maybe the rest
+	 */
+	private synchronized void increment(final int nbrHoursTicks)
+	{
+		this.seconds++;
+
+		if(this.seconds >= 60)
+		{
+			this.seconds = 0;
+			this.minutes++;
+
+			if(this.minutes >= 60)
+			{
+				this.minutes = 0;
+				this.hours++;
+
+				if(this.hours >= nbrHoursTicks)
+				{
+					this.hours = 0;
+				}
+			}
+		}
+	}
+
+	/**
+	 * complication with the time of its next update
+	 */
+	private static class ScheduledComplication
+	{
+		private final Complication complication;
+		private long nextTime = 0;
+
+		ScheduledComplication(Complication complication)
+		{
+			this.complication = complication;
+		}
+	}
+
+	/**
+	 * single scheduler of the clock: moves the hands and updates the complications that are due, then sleeps until the
+	 * next boundary of any of them. everything due at the same boundary shares one wake-up.
+	 */
+	private class TickRunnable extends AbstractRunnable
+	{
+		// wake-ups this early are on time, the update then uses the boundary as time
+		private final long earlyTolerance = 20;
+		private final int delay;
+		private long nextHandsTime = 0;
+		private long nextSyncTime = 0;
+
+		TickRunnable(Scheduler scheduler, int delay, PowerStats powerStats)
+		{
+			super(scheduler, delay, PowerStats.SOURCE_DRAW, powerStats);
+
+			this.delay = delay;
+		}
+
+		/**
+		 * forget the boundaries, the next tick synchronizes and updates all complications
+		 */
+		void reset()
+		{
+			this.nextHandsTime = 0;
+			this.nextSyncTime = 0;
+
+			for(ScheduledComplication scheduled : complications)
+			{
+				scheduled.nextTime = 0;
+			}
+		}
+
+		@Override
+		boolean tick()
+		{
+			long now = currentTimeMillis();
+			boolean changed = false;
+			boolean isHandsUpdated = false;
+
+			if(now >= this.nextHandsTime - this.earlyTolerance)
+			{
+				long time = Math.max(now, this.nextHandsTime);
+				int visibleState = getVisibleState();
+
+				boolean isSyncDue = time >= this.nextSyncTime - this.earlyTolerance;
+				boolean isTickMissed = time - this.nextHandsTime >= this.delay;
+
+				// sync every minute or after missed ticks, increment otherwise
+				if(isSyncDue || isTickMissed)
+				{
+					// woken a bit early for the minute the boundary is shown, after missed ticks the current time
+					synchronize(isTickMissed ? time : Math.max(time, this.nextSyncTime));
+					this.nextSyncTime = Complication.getNextBoundary(time, Complication.MINUTE, zone);
+				}
+				else
+				{
+					increment(tickMode.getNbrHoursTicks());
+				}
+
+				changed = getVisibleState() != visibleState;
+				isHandsUpdated = true;
+				handsTime = time - (time % this.delay);
+				this.nextHandsTime = Complication.getNextBoundary(time, this.delay, zone);
+
+				// redraw
+				redraw();
+			}
+
+			long nextTime = this.nextHandsTime;
+
+			for(int i=0; i<complications.size(); i++)
+			{
+				ScheduledComplication scheduled = complications.get(i);
+
+				if(now >= scheduled.nextTime - this.earlyTolerance)
+				{
+					long time = Math.max(now, scheduled.nextTime);
+
+					if(scheduled.complication.update(time))
+					{
+						changed = true;
+
+						// a full redraw is already on its way
+						if(!isHandsUpdated && display != null)
+						{
+							display.onInvalidateComplication(i);
+						}
+					}
+
+					scheduled.nextTime = Complication.getNextBoundary(time, scheduled.complication.getCadence(), zone);
+				}
+
+				nextTime = Math.min(nextTime, scheduled.nextTime);
+			}
+
+			// Repeat this the same runnable code block again at the next boundary
+			postRunnableAt(nextTime, now);
+
+			return changed;
+		}
+	}
+}
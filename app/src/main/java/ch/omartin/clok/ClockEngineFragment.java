@@ -0,0 +1,467 @@
+package ch.omartin.clok;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.preference.PreferenceManager;
+import android.support.v4.app.Fragment;
+import android.support.v4.app.FragmentActivity;
+import android.support.v4.app.FragmentManager;
+import android.util.Log;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * headless fragment retained across configuration changes, owner of everything that must not be rebuilt on a rotation:
+ * the clock engine, the dial, the sounds, the SNTP thread and the hand atlas. it is destroyed, and everything released,
+ * only when the activity really finishes or when the settings changed.
+ */
+public class ClockEngineFragment extends Fragment implements SharedPreferences.OnSharedPreferenceChangeListener, RenderCache.Listener
+{
+	private static final String TAG = "clock_engine";
+
+	private static final ExecutorService handAtlasExecutor = Executors.newSingleThreadExecutor();
+
+	private static final String COUNTDOWN_PATTERN = "yyyy-MM-dd HH:mm";
+
+	private Context context;
+	private SharedPreferences sharedPref;
+	private RenderCache renderCache;
+	private PowerStats powerStats;
+	private Handler handler;
+	private boolean isStale = false;
+	private boolean isSntpStale = false;
+
+	private ClockEngine engine;
+	private ClockFace clockFace;
+	private boolean isHourHandDrawn = true;
+	private boolean isMinuteHandDrawn = true;
+	private boolean isSecondHandDrawn = true;
+
+	private boolean isTickSoundOn = false;
+	private boolean isHourChimeOn = false;
+	private TickSound tickSound;
+	private int lastSoundState = -1;
+
+	private HandlerThread sntpThread;
+	private SntpRunnable sntpRunnable;
+
+	private long handAtlasBudget = 0;
+	private HandAtlas handAtlas;
+	private int handAtlasRadius = 0;
+	private int handAtlasGeneration = 0;
+
+	/**
+	 * the retained fragment of the activity, a new one if there is none yet or if the settings changed since. called
+	 * before the activity starts its fragments so that a stale engine is not started for nothing. the fragment holds no
+	 * state of its own, losing these transactions only means a fresh fragment reading the settings again.
+	 */
+	static ClockEngineFragment get(FragmentActivity activity)
+	{
+		FragmentManager fragmentManager = activity.getSupportFragmentManager();
+		ClockEngineFragment fragment = (ClockEngineFragment) fragmentManager.findFragmentByTag(TAG);
+
+		if(fragment != null && fragment.isStale)
+		{
+			fragmentManager.beginTransaction().remove(fragment).commitNowAllowingStateLoss();
+			fragment = null;
+		}
+
+		if(fragment == null)
+		{
+			fragment = new ClockEngineFragment();
+			fragmentManager.beginTransaction().add(fragment, TAG).commitNowAllowingStateLoss();
+		}
+
+		return fragment;
+	}
+
+	@Override
+	public void onCreate(Bundle savedInstanceState)
+	{
+		super.onCreate(savedInstanceState);
+
+		setRetainInstance(true);
+
+		Log.d("version code", String.valueOf(BuildConfig.VERSION_CODE));
+		Log.d("version name", BuildConfig.VERSION_NAME);
+
+		// the activity changes on each rotation, the application does not
+		this.context = getActivity().getApplicationContext();
+		this.sharedPref = PreferenceManager.getDefaultSharedPreferences(this.context);
+		this.renderCache = RenderCache.getInstance(this.context);
+		this.powerStats = PowerStats.getInstance(this.context);
+		this.handler = new Handler();
+
+		init();
+
+		this.sharedPref.registerOnSharedPreferenceChangeListener(this);
+		this.renderCache.addListener(this);
+	}
+
+	private void init()
+	{
+		int textSize = getResources().getDimensionPixelSize(R.dimen.fontSize);
+
+		TickMode tickMode = this.sharedPref.getBoolean(SettingsActivity.KEY_PREF_HOUR_MODE, false) ? TickMode.MODE_24 : TickMode.MODE_12;
+		boolean isInvertColors = this.sharedPref.getBoolean(SettingsActivity.KEY_PREF_INVERT_COLORS, false);
+		this.isSecondHandDrawn = this.sharedPref.getBoolean(SettingsActivity.KEY_PREF_DISPLAY_SECONDS, this.isSecondHandDrawn);
+		this.isMinuteHandDrawn = this.sharedPref.getBoolean(SettingsActivity.KEY_PREF_DISPLAY_MINUTES, this.isMinuteHandDrawn);
+		this.isHourHandDrawn = this.sharedPref.getBoolean(SettingsActivity.KEY_PREF_DISPLAY_HOURS, this.isHourHandDrawn);
+		this.isTickSoundOn = this.sharedPref.getBoolean(SettingsActivity.KEY_PREF_TICK_SOUND, this.isTickSoundOn);
+		this.isHourChimeOn = this.sharedPref.getBoolean(SettingsActivity.KEY_PREF_HOUR_CHIME, this.isHourChimeOn);
+		this.handAtlasBudget = getHandAtlasBudget(this.sharedPref);
+
+		this.clockFace = new ClockFace(tickMode, isInvertColors, this.isHourHandDrawn, this.isMinuteHandDrawn,
+				this.isSecondHandDrawn, textSize);
+
+		if(this.isTickSoundOn || this.isHourChimeOn)
+		{
+			this.tickSound = new TickSound();
+		}
+
+		this.engine = new ClockEngine(new HandlerScheduler(this.handler), WallClock.SYSTEM, this.powerStats, tickMode,
+				this.isSecondHandDrawn, createComplications(this.context, this.sharedPref));
+
+		startSntp();
+	}
+
+	/**
+	 * create the SNTP thread if enabled in the settings, the queries are posted on start
+	 */
+	private void startSntp()
+	{
+		boolean isSntpOn = this.sharedPref.getBoolean(SettingsActivity.KEY_PREF_SNTP, false);
+		String sntpServer = this.sharedPref.getString(SettingsActivity.KEY_PREF_SNTP_SERVER, "pool.ntp.org");
+
+		if(isSntpOn && !sntpServer.isEmpty())
+		{
+			// network queries must not run on the ui thread
+			this.sntpThread = new HandlerThread("sntp");
+			this.sntpThread.start();
+
+			final Scheduler sntpScheduler = new HandlerScheduler(new Handler(this.sntpThread.getLooper()));
+			this.sntpRunnable = new SntpRunnable(sntpScheduler, this.powerStats, this.engine.getTimeDiscipline(), sntpServer);
+		}
+	}
+
+	private void stopSntp()
+	{
+		if(this.sntpThread != null)
+		{
+			this.sntpRunnable.cancel();
+			this.sntpRunnable = null;
+			this.sntpThread.quitSafely();
+			this.sntpThread = null;
+		}
+	}
+
+	private static long getHandAtlasBudget(SharedPreferences sharedPref)
+	{
+		return Long.parseLong(sharedPref.getString(SettingsActivity.KEY_PREF_HAND_ATLAS_BUDGET, "0")) * 1024 * 1024;
+	}
+
+	/**
+	 * complications enabled in the settings, in the free slots of the dial
+	 */
+	static List<Complication> createComplications(Context context, SharedPreferences sharedPref)
+	{
+		List<Complication> complications = new ArrayList<>();
+		ComplicationSlot[] slots = ComplicationSlot.values();
+		TimeZone zone = TimeZone.getDefault();
+
+		if(sharedPref.getBoolean(SettingsActivity.KEY_PREF_COMPLICATION_DATE, false))
+		{
+			complications.add(new DateComplication(slots[complications.size()]));
+		}
+
+		if(sharedPref.getBoolean(SettingsActivity.KEY_PREF_COMPLICATION_MOON, false))
+		{
+			complications.add(new MoonPhaseComplication(slots[complications.size()], zone));
+		}
+
+		if(sharedPref.getBoolean(SettingsActivity.KEY_PREF_COMPLICATION_BATTERY, false))
+		{
+			complications.add(new BatteryComplication(slots[complications.size()], context));
+		}
+
+		if(sharedPref.getBoolean(SettingsActivity.KEY_PREF_COMPLICATION_TIME_ZONE, false))
+		{
+			String id = sharedPref.getString(SettingsActivity.KEY_PREF_COMPLICATION_TIME_ZONE_ID, "UTC");
+			complications.add(new TimeZoneComplication(slots[complications.size()], TimeZone.getTimeZone(id)));
+		}
+
+		if(sharedPref.getBoolean(SettingsActivity.KEY_PREF_COMPLICATION_COUNTDOWN, false))
+		{
+			String target = sharedPref.getString(SettingsActivity.KEY_PREF_COMPLICATION_COUNTDOWN_TARGET, "");
+
+			try
+			{
+				Date date = new SimpleDateFormat(COUNTDOWN_PATTERN, Locale.getDefault()).parse(target);
+				complications.add(new CountdownComplication(slots[complications.size()], date.getTime(), target));
+			}
+			catch(ParseException pex)
+			{
+				Log.e("countdown target", pex.getMessage(), pex);
+			}
+		}
+
+		return complications;
+	}
+
+	@Override
+	public void onStart()
+	{
+		super.onStart();
+
+		this.engine.start();
+
+		if(this.isSntpStale)
+		{
+			stopSntp();
+			startSntp();
+			this.isSntpStale = false;
+		}
+
+		if(this.sntpRunnable != null)
+		{
+			this.sntpRunnable.resume();
+		}
+	}
+
+	@Override
+	public void onStop()
+	{
+		super.onStop();
+
+		this.powerStats.save();
+
+		// keep ticking through a rotation, the new activity draws the cached time without resync
+		if(!getActivity().isChangingConfigurations())
+		{
+			this.engine.stop();
+
+			// no polling while nothing is shown
+			if(this.sntpRunnable != null)
+			{
+				this.sntpRunnable.cancel();
+			}
+		}
+	}
+
+	@Override
+	public void onDestroy()
+	{
+		super.onDestroy();
+
+		this.sharedPref.unregisterOnSharedPreferenceChangeListener(this);
+		this.renderCache.removeListener(this);
+		this.engine.stop();
+		stopSntp();
+
+		if(this.tickSound != null)
+		{
+			this.tickSound.release();
+			this.tickSound = null;
+		}
+
+		releaseHandAtlas();
+	}
+
+	/**
+	 * a new fragment is created the next time the activity starts if the dial, the complications or the sounds changed.
+	 * the server and the atlas budget are applied to this one, other keys are ignored.
+	 */
+	@Override
+	public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key)
+	{
+		switch(key)
+		{
+			case SettingsActivity.KEY_PREF_HOUR_MODE:
+			case SettingsActivity.KEY_PREF_INVERT_COLORS:
+			case SettingsActivity.KEY_PREF_DISPLAY_SECONDS:
+			case SettingsActivity.KEY_PREF_DISPLAY_MINUTES:
+			case SettingsActivity.KEY_PREF_DISPLAY_HOURS:
+			case SettingsActivity.KEY_PREF_TICK_SOUND:
+			case SettingsActivity.KEY_PREF_HOUR_CHIME:
+			case SettingsActivity.KEY_PREF_COMPLICATION_DATE:
+			case SettingsActivity.KEY_PREF_COMPLICATION_MOON:
+			case SettingsActivity.KEY_PREF_COMPLICATION_BATTERY:
+			case SettingsActivity.KEY_PREF_COMPLICATION_TIME_ZONE:
+			case SettingsActivity.KEY_PREF_COMPLICATION_TIME_ZONE_ID:
+			case SettingsActivity.KEY_PREF_COMPLICATION_COUNTDOWN:
+			case SettingsActivity.KEY_PREF_COMPLICATION_COUNTDOWN_TARGET:
+				this.isStale = true;
+				break;
+			case SettingsActivity.KEY_PREF_SNTP:
+			case SettingsActivity.KEY_PREF_SNTP_SERVER:
+				// the engine keeps its time discipline, the queries restart on the next start
+				this.isSntpStale = true;
+				break;
+			case SettingsActivity.KEY_PREF_HAND_ATLAS_BUDGET:
+				// built again when the next view attaches
+				this.handAtlasBudget = getHandAtlasBudget(sharedPreferences);
+				releaseHandAtlas();
+				break;
+			default:
+				break;
+		}
+	}
+
+	/**
+	 * memory is critical, hands are drawn live until the next resize
+	 */
+	@Override
+	public void onReleaseBitmaps()
+	{
+		releaseHandAtlas();
+	}
+
+	ClockEngine getEngine()
+	{
+		return this.engine;
+	}
+
+	ClockFace getClockFace()
+	{
+		return this.clockFace;
+	}
+
+	boolean isHourHandDrawn()
+	{
+		return this.isHourHandDrawn;
+	}
+
+	boolean isMinuteHandDrawn()
+	{
+		return this.isMinuteHandDrawn;
+	}
+
+	boolean isSecondHandDrawn()
+	{
+		return this.isSecondHandDrawn;
+	}
+
+	/**
+	 * @return the atlas for the current size, or null while it is built or if it does not fit in the budget
+	 */
+	HandAtlas getHandAtlas()
+	{
+		return this.handAtlas;
+	}
+
+	/**
+	 * replace the hand atlas by one matching the radius, built in the background. the current one is kept if it
+	 * already matches, e.g. after rotating twice.
+	 */
+	void buildHandAtlas(final int radius)
+	{
+		if(radius == this.handAtlasRadius)
+		{
+			return;
+		}
+
+		releaseHandAtlas();
+		this.handAtlasRadius = radius;
+
+		final int generation = this.handAtlasGeneration;
+
+		if(this.handAtlasBudget <= 0 || radius <= 0)
+		{
+			return;
+		}
+
+		final TickMode tickMode = this.engine.getTickMode();
+		final long budget = this.handAtlasBudget;
+		final RenderCache renderCache = this.renderCache;
+
+		handAtlasExecutor.execute(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				final HandAtlas handAtlas = HandAtlas.build(tickMode, radius, ClockFace.CENTER_RADIUS,
+						ClockFace.SECONDS_RADIUS, ClockFace.STROKE_WIDTH, budget, renderCache);
+
+				if(handAtlas == null)
+				{
+					return;
+				}
+
+				handler.post(new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						// the size changed again while building
+						if(generation != handAtlasGeneration)
+						{
+							handAtlas.recycle();
+							return;
+						}
+
+						ClockEngineFragment.this.handAtlas = handAtlas;
+						engine.redraw();
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * drop the atlas and any build still running
+	 */
+	private void releaseHandAtlas()
+	{
+		this.handAtlasGeneration++;
+		this.handAtlasRadius = 0;
+
+		if(this.handAtlas != null)
+		{
+			this.handAtlas.recycle();
+			this.handAtlas = null;
+		}
+	}
+
+	/**
+	 * retrigger tick and chime when the drawn time changed, the state survives rotations so nothing is played twice
+	 */
+	void playSounds()
+	{
+		if(this.tickSound == null)
+		{
+			return;
+		}
+
+		int soundState = this.engine.getVisibleState();
+
+		if(soundState == this.lastSoundState)
+		{
+			return;
+		}
+
+		this.lastSoundState = soundState;
+
+		if(this.isHourChimeOn && this.engine.getMinutes() == 0 && this.engine.getSeconds() == 0)
+		{
+			this.tickSound.chime();
+		}
+		else if(this.isTickSoundOn)
+		{
+			// the boundary the engine ticked for, moved to the time base of the audio timestamps
+			long sinceBoundaryMillis = this.engine.currentTimeMillis() - this.engine.getHandsTime();
+			long boundaryNanos = System.nanoTime() - (sinceBoundaryMillis * 1_000_000L);
+			this.tickSound.tick(boundaryNanos);
+		}
+	}
+}
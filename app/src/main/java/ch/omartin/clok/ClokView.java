@@ -1,535 +1,339 @@
 package ch.omartin.clok;
 
 import android.content.Context;
-import android.content.SharedPreferences;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.Paint;
-import android.graphics.Path;
 import android.graphics.Rect;
-import android.graphics.RectF;
-import android.os.Handler;
-import android.preference.PreferenceManager;
+import android.os.Debug;
 import android.support.annotation.NonNull;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.View;
 
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
-import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 
 /**
  * Created by Olivier Martin on 14.03.2018.
  */
-public class ClokView extends View
+public class ClokView extends View implements ClockEngine.Display, RenderCache.Listener
 {
-	private Paint backgroundPaint;
-	private Paint clockPaint;
-	private Paint tickPaint;
-	private Paint timePaint;
-	private Paint secondsPaint;
-	private Paint lightStatusPaint;
-
-	private final int padding = 30;
-	private final int hoursTickSize = 40;
-	private final int minutesTickSize = 20;
-	private final int centerRadius = 30;
-	private final int secondsRadius = 20;
-	private final int secondDelay = 1000;
-	private final int minuteDelay = 60_000;
-	private final float strokeWidth = 5.0f;
-
-	private int color = Color.BLACK;
-	private int backgroundColor = Color.WHITE;
-
-	private final String datePattern = "dd.MM.yyyy";
-	private final String timePattern = "H:mm:ss";
-	private final String timeWithoutSecondsPattern = "H:mm";
-	private final Locale locale = Locale.getDefault();
-	private final SimpleDateFormat dateFormatter = new SimpleDateFormat(this.datePattern, this.locale);
-	private final SimpleDateFormat timeFormatter = new SimpleDateFormat(this.timePattern, this.locale);
-	private final SimpleDateFormat timeWithoutSecondsFormatter = new SimpleDateFormat(this.timeWithoutSecondsPattern, this.locale);
-	private final SimpleDateFormat formatter = new SimpleDateFormat(this.datePattern + " " + this.timePattern, this.locale);
-
-	private TickMode tickMode = TickMode.MODE_12;
-	private boolean isInvertColors = false;
-	private boolean isHourHandDrawn = true;
-	private boolean isMinuteHandDrawn = true;
-	private boolean isSecondHandDrawn = true;
-
-	private volatile Calendar calendar;
-	private volatile int hours;
-	private volatile int minutes;
-	private volatile int seconds;
+	private final RenderCache renderCache;
+	private final CanvasRenderer renderer;
+	private final PowerStats powerStats;
+
+	// retained across rotations, set while the view is shown
+	private ClockEngineFragment owner;
+	private ClockEngine engine;
+	private ClockFace clockFace;
+	// area of each complication as last drawn
+	private int[][] complicationBounds = new int[0][];
+	private final int[] newBounds = new int[4];
+
+	// dial, hands and time without the complications, redrawn only when the hands move
+	private Bitmap frameLayer;
+	private boolean isFrameDirty = true;
+	private final Rect clip = new Rect();
+
+	private final int handsDrawLogPeriod = 60;
+	private long handsDrawNanos = 0;
+	private int nbrHandsDraws = 0;
 
 	public ClokView(Context context, AttributeSet attributeSet)
 	{
 		super(context, attributeSet);
 
-		init();
+		this.renderCache = RenderCache.getInstance(context);
+		this.renderer = new CanvasRenderer(this.renderCache);
+		this.powerStats = PowerStats.getInstance(context);
 	}
 
-	private void init()
+	/**
+	 * draw the state of a retained engine, the current time is drawn right away if the engine is already synchronized
+	 * @param owner owner of the engine and of the render caches
+	 */
+	void attach(ClockEngineFragment owner)
 	{
-		Log.d("version code", String.valueOf(BuildConfig.VERSION_CODE));
-		Log.d("version name", BuildConfig.VERSION_NAME);
-
-		int textSize = getResources().getDimensionPixelSize(R.dimen.fontSize);
-
-		SharedPreferences sharedPref = PreferenceManager.getDefaultSharedPreferences(getContext());
-		Boolean modePrefs = sharedPref.getBoolean(SettingsActivity.KEY_PREF_HOUR_MODE, false);
-		this.isInvertColors = sharedPref.getBoolean(SettingsActivity.KEY_PREF_INVERT_COLORS, this.isInvertColors);
-		this.isSecondHandDrawn = sharedPref.getBoolean(SettingsActivity.KEY_PREF_DISPLAY_SECONDS, this.isSecondHandDrawn);
-		this.isMinuteHandDrawn = sharedPref.getBoolean(SettingsActivity.KEY_PREF_DISPLAY_MINUTES, this.isMinuteHandDrawn);
-		this.isHourHandDrawn = sharedPref.getBoolean(SettingsActivity.KEY_PREF_DISPLAY_HOURS, this.isHourHandDrawn);
-		int syncDelay = this.minuteDelay;
-		int drawDelay = this.secondDelay;
-
-		if(modePrefs)
+		if(owner == this.owner)
 		{
-			this.tickMode = TickMode.MODE_24;
-		}
-		else
-		{
-			this.tickMode = TickMode.MODE_12;
+			return;
 		}
 
-		if(this.isInvertColors)
-		{
-			this.color = Color.WHITE;
-			this.backgroundColor = Color.BLACK;
-		}
+		detach();
 
-		if(!this.isSecondHandDrawn)
+		this.owner = owner;
+		this.engine = owner.getEngine();
+		this.clockFace = owner.getClockFace();
+		this.complicationBounds = new int[this.engine.getComplications().size()][4];
+		this.isFrameDirty = true;
+		this.renderCache.addListener(this);
+
+		if(getWidth() > 0 && getHeight() > 0)
 		{
-			drawDelay = this.minuteDelay;
+			onSizeChanged(getWidth(), getHeight(), 0, 0);
 		}
 
-		this.backgroundPaint = new Paint();
-		this.backgroundPaint.setColor(this.backgroundColor);
-		this.clockPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-		this.clockPaint.setColor(color);
-		this.clockPaint.setStyle(Paint.Style.STROKE);
-		this.clockPaint.setStrokeWidth(this.strokeWidth);
-		this.tickPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-		this.tickPaint.setColor(color);
-		this.tickPaint.setStrokeWidth(this.strokeWidth);
-		this.secondsPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-		this.secondsPaint.setColor(color);
-		this.secondsPaint.setAlpha(128);
-		this.timePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-		this.timePaint.setColor(color);
-		this.timePaint.setTextSize(textSize);
-		this.lightStatusPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-		this.lightStatusPaint.setStyle(Paint.Style.FILL);
-
-		final Handler syncHandler = new Handler();
-		final AbstractRunnable syncRunnableCode = new SyncRunnable(syncHandler, syncDelay);
-
-		// post
-		syncRunnableCode.postRunnable();
-
-		final Handler drawHandler = new Handler();
-		final AbstractRunnable drawRunnable = new DrawRunnable(drawHandler, drawDelay);
-
-		// Start the initial runnable task by posting through the handler
-		drawRunnable.postRunnable();
+		this.engine.attach(this);
 	}
 
 	/**
-	 * sync with internal clock
+	 * stop drawing the engine, it keeps ticking if its owner is retained
 	 */
-	private synchronized void synchronize()
+	void detach()
 	{
-		// use this date for the next cycle until next sync.
-		this.calendar = Calendar.getInstance();
-		this.minutes = calendar.get(Calendar.MINUTE);
-		this.seconds = calendar.get(Calendar.SECOND);
-		final Date date = calendar.getTime();
-
-		if(tickMode == TickMode.MODE_24)
+		if(this.engine != null)
 		{
-			this.hours = calendar.get(Calendar.HOUR_OF_DAY);
+			this.engine.detach(this);
 		}
-		else
-        {
-            this.hours = calendar.get(Calendar.HOUR);
-        }
 
-		Log.d("sync ", this.formatter.format(date));
+		this.renderCache.removeListener(this);
+		releaseFrameLayer();
+
+		this.owner = null;
+		this.engine = null;
+		this.clockFace = null;
 	}
 
-	/**
-	 * increment seconds and maybe the rest
-	 */
-	private synchronized void increment(final int nbrHoursTicks)
+	@Override
+	public void onInvalidate()
 	{
-		this.seconds++;
-
-		if(this.seconds >= 60)
-		{
-			this.seconds = 0;
-			this.minutes++;
+		this.isFrameDirty = true;
+		invalidate();
+	}
 
-			if(this.minutes >= 60)
-			{
-				this.minutes = 0;
-				this.hours++;
+	@Override
+	public void onInvalidateComplication(int index)
+	{
+		// the old text is erased and the new one drawn, they may not have the same width
+		int[] bounds = this.complicationBounds[index];
+		this.engine.getComplications().get(index).getBounds(getWidth(), getHeight(), this.renderer,
+				this.clockFace.getComplicationBrush(), this.newBounds);
 
-				if(this.hours >= nbrHoursTicks)
-				{
-					this.hours = 0;
-				}
-			}
-		}
+		invalidate(Math.min(bounds[0], this.newBounds[0]), Math.min(bounds[1], this.newBounds[1]),
+				Math.max(bounds[2], this.newBounds[2]), Math.max(bounds[3], this.newBounds[3]));
 	}
 
 	@Override
 	protected void onDraw(final Canvas canvas)
 	{
+		long start = Debug.threadCpuTimeNanos();
+
 		super.onDraw(canvas);
 
-		drawBackground(canvas);
-		drawLightStatus(canvas, this.tickMode);
-		drawPerimeter(canvas);
-		drawCenter(canvas);
-		drawTicks(canvas, this.tickMode);
-		drawHands(canvas, this.tickMode);
-		drawNumbers(canvas, this.tickMode);
-		drawTime(canvas);
+		if(this.engine == null)
+		{
+			return;
+		}
+
+		// a released layer is only obtained again when the hands move, not on the next complication update
+		if(isFrameCached() && (this.frameLayer != null || this.isFrameDirty))
+		{
+			if(this.frameLayer == null)
+			{
+				this.frameLayer = this.renderCache.obtainBitmap(getWidth(), getHeight(), Bitmap.Config.ARGB_8888);
+			}
+
+			if(this.isFrameDirty)
+			{
+				this.frameLayer.eraseColor(Color.TRANSPARENT);
+				drawFrame(new Canvas(this.frameLayer));
+				this.isFrameDirty = false;
+			}
+
+			// a complication update only costs this blit and its own text
+			canvas.drawBitmap(this.frameLayer, 0, 0, null);
+		}
+		else
+		{
+			drawFrame(canvas);
+		}
+
+		this.renderer.setCanvas(canvas);
+		drawComplications(canvas);
+		this.renderer.setCanvas(null);
+
+		this.powerStats.recordCpuTime(PowerStats.SOURCE_DRAW, Debug.threadCpuTimeNanos() - start);
 	}
 
 	/**
-	 * draw clock background
-	 * @param canvas where to draw
+	 * everything but the complications
 	 */
-	private void drawBackground(final Canvas canvas)
+	private void drawFrame(final Canvas canvas)
 	{
-		canvas.drawRect(0, 0, canvas.getWidth(), canvas.getHeight(), this.backgroundPaint);
+		this.renderer.setCanvas(canvas);
+		this.clockFace.drawBackground(this.renderer);
+		this.clockFace.drawLightStatus(this.renderer);
+		this.clockFace.drawPerimeter(this.renderer);
+		this.clockFace.drawCenter(this.renderer);
+		this.clockFace.drawTicks(this.renderer);
+		drawHands(canvas);
+		this.clockFace.drawNumbers(this.renderer);
+		drawTime();
+		this.renderer.setCanvas(null);
 	}
 
 	/**
-	 * draw clock perimeter
-	 * @param canvas where to draw
+	 * complications are only redrawn alone when the hands move less often than they do, i.e. without second hand.
+	 * with the second hand every complication boundary is also a hands tick and the frame is drawn directly.
 	 */
-	private void drawPerimeter(final Canvas canvas)
+	private boolean isFrameCached()
 	{
-		int[] center = getCenter();
-		int radius = getRadius();
-
-		canvas.drawCircle(center[0], center[1], radius, this.clockPaint);
+		return !this.owner.isSecondHandDrawn() && !this.engine.getComplications().isEmpty();
 	}
 
 	/**
-	 * draw center at the center
-	 * @param canvas where to draw
+	 * memory is critical, the frame is drawn directly until the hands move and the layer is obtained again
 	 */
-	private void drawCenter(final Canvas canvas)
+	@Override
+	public void onReleaseBitmaps()
 	{
-		int[] center = getCenter();
-
-		this.clockPaint.setStyle(Paint.Style.FILL);
-		canvas.drawCircle(center[0], center[1], this.centerRadius, this.clockPaint);
-		this.clockPaint.setStyle(Paint.Style.STROKE);
+		releaseFrameLayer();
 	}
 
-	/**
-	 *
-	 * @param canvas where to draw
-	 * @param tickMode 12 or 24 hour mode
-	 */
-	private void drawLightStatus(final Canvas canvas, final TickMode tickMode)
+	private void releaseFrameLayer()
 	{
-		if(tickMode == TickMode.MODE_24)
+		if(this.frameLayer != null)
 		{
-			// night
-			this.lightStatusPaint.setColor(Color.BLACK);
-			this.lightStatusPaint.setAlpha(128);
-			fillHours(canvas, this.lightStatusPaint, tickMode, 0, 7);
-			fillHours(canvas, this.lightStatusPaint, tickMode, 21, 24);
-
-			// day
-			this.lightStatusPaint.setColor(Color.WHITE);
-			this.lightStatusPaint.setAlpha(128);
-			fillHours(canvas, this.lightStatusPaint, tickMode, 7, 21);
+			this.renderCache.releaseBitmap(this.frameLayer);
+			this.frameLayer = null;
 		}
 	}
 
+	@Override
+	protected void onDetachedFromWindow()
+	{
+		super.onDetachedFromWindow();
+
+		detach();
+	}
+
 	/**
-	 * draw ticks somewhere
+	 * draw hours/minutes/seconds somewhere
 	 * @param canvas where to draw
-	 * @param tickMode 12 or 24 hour mode
 	 */
-	private void drawTicks(final Canvas canvas, final TickMode tickMode)
+	private void drawHands(final Canvas canvas)
 	{
 		int radius = getRadius();
-		int nbrHoursTicks = tickMode.getNbrHoursTicks();
-		float degreesPerTick = 360.0f / nbrHoursTicks;
 		int[] center = getCenter();
-		float startX = 0;
-		float startY = 0 - radius;
-		float endX = startX;
-		float endY = startY + this.hoursTickSize;
-
-		canvas.save();
-		canvas.translate(center[0], center[1]);
+		int centerX = center[0];
+		int centerY = center[1];
+		long start = System.nanoTime();
+		HandAtlas handAtlas = this.owner.getHandAtlas();
 
-		// hours
-		for(int i=0; i<nbrHoursTicks; i++)
+		if(handAtlas != null)
 		{
-			canvas.rotate(degreesPerTick);
-			canvas.drawLine(startX, startY, endX, endY, this.tickPaint);
+			drawAtlasHands(canvas, handAtlas, radius, centerX, centerY);
 		}
-
-		canvas.restore();
-
-		int nbrMinutesTicks = tickMode.getNbrMinutesTicks();
-		degreesPerTick = 360.0f / nbrMinutesTicks;
-		endY = startY + this.minutesTickSize;
-
-		canvas.save();
-		canvas.translate(center[0], center[1]);
-
-		// minutes
-		for(int i=0; i<nbrMinutesTicks; i++)
+		else
 		{
-			canvas.rotate(degreesPerTick);
-			canvas.drawLine(startX, startY, endX, endY, this.tickPaint);
+			this.clockFace.drawHands(this.renderer, this.engine.getHours(), this.engine.getMinutes(), this.engine.getSeconds());
 		}
 
-		canvas.restore();
+		logHandsDrawTime(System.nanoTime() - start, handAtlas != null);
+
+		this.owner.playSounds();
 	}
 
 	/**
-	 *
-	 * @param canvas where to draw
-	 * @param tickMode 12 or 24 hour mode
+	 * blit the pre-rendered hands
 	 */
-	private void drawNumbers(final Canvas canvas, final TickMode tickMode)
+	private void drawAtlasHands(final Canvas canvas, final HandAtlas handAtlas, final int radius, final int centerX, final int centerY)
 	{
-		int[] center = getCenter();
-		int radius = getRadius();
-
-		// TODO
-		int nbrHoursTicks = tickMode.getNbrHoursTicks();
-		float degreesPerTick = 360.0f / nbrHoursTicks;
-		float x = 0;
-		float y = 0 - (radius * 0.75f);
-		float textSize = this.tickPaint.getTextSize();
-
-		canvas.save();
-		canvas.translate(center[0], center[1]);
-		this.tickPaint.setTextSize(40);
+		if(this.owner.isHourHandDrawn())
+		{
+			handAtlas.drawHour(canvas, this.engine.getHours(), centerX, centerY, this.renderer.getPaint(this.clockFace.getHandBrush()));
+		}
 
-		// hours
-		for(int i=0; i<nbrHoursTicks; i++)
+		if(this.owner.isMinuteHandDrawn())
 		{
-			Rect bounds = new Rect();
-			String text = String.valueOf((i + 1) % 25);
-			this.tickPaint.getTextBounds(text, 0, text.length(), bounds);
-			canvas.rotate(degreesPerTick);
-			canvas.drawText(text, x - (bounds.width() / 2), y, this.tickPaint);
+			handAtlas.drawMinute(canvas, this.engine.getMinutes(), centerX, centerY, this.renderer.getPaint(this.clockFace.getHandBrush()));
 		}
 
-		canvas.restore();
-		this.tickPaint.setTextSize(textSize);
+		if(this.owner.isSecondHandDrawn())
+		{
+			handAtlas.drawSecond(canvas, this.engine.getSeconds(), centerX, centerY, radius,
+					this.renderer.getPaint(this.clockFace.getSecondsBrush()));
+		}
 	}
 
 	/**
-	 * draw hours/minutes/seconds somewhere
-	 * @param canvas where to draw
-	 * @param tickMode 12 or 24 hour mode
+	 * log the average time spent issuing the hands drawing, to compare blits with live drawing
 	 */
-	private void drawHands(final Canvas canvas, final TickMode tickMode)
+	private void logHandsDrawTime(final long nanos, final boolean isAtlas)
 	{
-		int nbrHoursTicks = tickMode.getNbrHoursTicks();
-		int radius = getRadius();
-		int[] center = getCenter();
-		int centerX = center[0];
-		int centerY = center[1];
-		int endX;
-		int endY;
-		float degrees;
-
-//		Log.d("draw time", hours + " : " + minutes + " : " + seconds);
-
-		canvas.save();
-		canvas.translate(centerX, centerY);
+		this.handsDrawNanos += nanos;
+		this.nbrHandsDraws++;
 
-		// hours
-		if(this.isHourHandDrawn)
+		if(this.nbrHandsDraws >= this.handsDrawLogPeriod)
 		{
-			degrees = ((float) hours / nbrHoursTicks) * 360;
-			endX = 0;
-			endY = radius / 2;
-			canvas.rotate(degrees);
-			canvas.drawLine(0, -this.centerRadius, endX, -endY, this.tickPaint);
-			canvas.rotate(-degrees);
+			Log.d("hands draw", (isAtlas ? "atlas" : "live") + " : " + (this.handsDrawNanos / this.nbrHandsDraws) + " ns");
+			this.handsDrawNanos = 0;
+			this.nbrHandsDraws = 0;
 		}
+	}
 
-		// minutes
-		if(this.isMinuteHandDrawn)
+	@Override
+	protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight)
+	{
+		super.onSizeChanged(width, height, oldWidth, oldHeight);
+
+		releaseFrameLayer();
+		this.isFrameDirty = true;
+
+		if(this.engine == null)
 		{
-			degrees = (minutes / 60.0f) * 360;
-			endX = 0;
-			endY = (int) (radius * 0.75);
-			canvas.rotate(degrees);
-			canvas.drawLine(0, -this.centerRadius, endX, -endY, this.tickPaint);
-			canvas.rotate(-degrees);
+			return;
 		}
 
-		//seconds
-		if(this.isSecondHandDrawn)
+		Brush brush = this.clockFace.getComplicationBrush();
+		List<Complication> complications = this.engine.getComplications();
+
+		for(int i=0; i<complications.size(); i++)
 		{
-			degrees = (seconds / 60.0f) * 360;
-			endX = 0;
-			endY = radius;
-			canvas.rotate(degrees);
-			canvas.drawCircle(0, -endY, this.secondsRadius, this.secondsPaint);
-			//		canvas.drawLine(0, 0, endX, -endY, this.tickPaint);
+			complications.get(i).getBounds(width, height, this.renderer, brush, this.complicationBounds[i]);
 		}
 
-		canvas.restore();
-		increment(nbrHoursTicks);
+		this.owner.buildHandAtlas(getRadius());
 	}
 
 	/**
-	 * draw time somewhere
-	 * @param canvas where to draw
+	 * draw the complications in their slots, those outside of the dirty area are skipped. the bounds of those drawn
+	 * are kept to erase their text on the next change.
 	 */
-	private void drawTime(final Canvas canvas)
+	private void drawComplications(final Canvas canvas)
 	{
-		int radius = getRadius();
-		int[] center = getCenter();
-		int margin = 10;
+		Brush brush = this.clockFace.getComplicationBrush();
+		List<Complication> complications = this.engine.getComplications();
 
-		if(this.calendar != null)
+		canvas.getClipBounds(this.clip);
+
+		for(int i=0; i<complications.size(); i++)
 		{
-			Rect dateBounds = new Rect();
-			Rect timeBounds = new Rect();
-			Calendar calendar = Calendar.getInstance(Locale.getDefault());
-			Date date = calendar.getTime();
-			String dateText = this.dateFormatter.format(date);
-			String timeText = this.timeFormatter.format(date);
+			Complication complication = complications.get(i);
+			int[] bounds = this.newBounds;
+			complication.getBounds(getWidth(), getHeight(), this.renderer, brush, bounds);
 
-			if(!this.isSecondHandDrawn)
+			if(this.clip.intersects(bounds[0], bounds[1], bounds[2], bounds[3]))
 			{
-				timeText = this.timeWithoutSecondsFormatter.format(date);
+				complication.draw(this.renderer, brush);
+				System.arraycopy(bounds, 0, this.complicationBounds[i], 0, bounds.length);
 			}
-
-			this.timePaint.getTextBounds(dateText, 0, dateText.length(), dateBounds);
-			this.timePaint.getTextBounds(timeText, 0, timeText.length(), timeBounds);
-			// height of
-			float height = dateBounds.height() + timeBounds.height() + (2 * margin);
-			float width = Math.max(dateBounds.width(), timeBounds.width()) + (2 * margin);
-			float x = center[0] - (width / 2);
-			float y = center[1] + (radius / 2.0f);
-			float left = x - margin;
-			float top = y - height - margin;
-			float right = x + width;
-			float bottom = y;
-
-			this.timePaint.setColor(getBackColor());
-			this.timePaint.setAlpha(128);
-			canvas.drawRect(left, top, right, bottom, this.timePaint);
-			Paint.Style style = this.timePaint.getStyle();
-			this.timePaint.setColor(getFrontColor());
-			this.timePaint.setAlpha(255);
-			this.timePaint.setStyle(Paint.Style.STROKE);
-			canvas.drawRect(left, top, right, bottom, this.timePaint);
-			this.timePaint.setStyle(style);
-
-			canvas.save();
-			canvas.translate(left + margin, top + margin);
-			drawMultipleLines(new String[] {timeText, dateText}, canvas, this.timePaint, margin);
-			canvas.restore();
-		}
-	}
-
-	private int[] drawMultipleLines(String[] lines, Canvas canvas, Paint paint, int margin)
-	{
-		int[] widths = new int[lines.length];
-		int[] heights = new int[lines.length];
-		Rect bounds = new Rect();
-		int maxWidth = 0;
-		int totalHeight = 0;
-		int offset = 0;
-
-		// get required metrics
-		for(int i=0; i<lines.length; i++)
-		{
-			String line = lines[i];
-			paint.getTextBounds(line, 0, line.length(), bounds);
-			widths[i] = bounds.width();
-			heights[i] = bounds.height();
-			maxWidth = Math.max(maxWidth, widths[i]);
-			totalHeight += heights[i];
 		}
-
-		int center = maxWidth / 2;
-
-		// draw each line centered
-		for(int i=0; i<lines.length; i++)
-		{
-			offset += heights[i];
-			String line = lines[i];
-			int x = center - (widths[i] / 2);
-			int y = offset;
-			canvas.drawText(line, x, y, paint);
-			offset += margin;		}
-
-		int[] result = new int[2];
-		result[0] = maxWidth;
-		result[1] = totalHeight;
-
-		return result;
 	}
 
 	/**
-	 * displays hours on dial background
-	 * @param canvas where to draw
-	 * @param paint how to draw
-	 * @param tickMode 12 or 24 hour mode
-	 * @param from hour to start from
-	 * @param to hour to end to
+	 * draw time somewhere, once synchronized
 	 */
-	private void fillHours(final Canvas canvas, final Paint paint, TickMode tickMode, final int from, final int to)
+	private void drawTime()
 	{
-		int maxHours = tickMode.getNbrHoursTicks();
-
-		if(from > to)
-		{
-			throw new IllegalArgumentException("from is bigger than to : " + from + " " + to);
-		}
-		if(from > maxHours)
+		if(this.engine.isSynchronized())
 		{
-			throw new IllegalArgumentException("from is bigger than maxHours : " + from + " " + maxHours);
+			Calendar calendar = Calendar.getInstance(Locale.getDefault());
+			calendar.setTimeInMillis(this.engine.currentTimeMillis());
+			this.clockFace.drawTime(this.renderer, calendar.getTime());
 		}
-
-		int[] center = getCenter();
-		int centerX = center[0];
-		int centerY = center[1];
-		int radius = getRadius();
-
-		RectF rect = new RectF(-radius, -radius, radius, radius);
-		float startAngle = (from / (float) maxHours) * 360.0f;
-		float sweepAngle = ((to - from) / (float) maxHours) * 360.0f;
-
-		// move to center of clock, change reference angle
-		canvas.save();
-		canvas.translate(centerX, centerY);
-		canvas.rotate(-90);
-
-		Path path = new Path();
-		path.moveTo(0, 0);
-		path.arcTo(rect, startAngle, sweepAngle, true);
-		path.lineTo(0, 0);
-		path.close();
-
-		canvas.drawPath(path, paint);
-		canvas.restore();
 	}
 
 	@NonNull
@@ -547,57 +351,8 @@ public class ClokView extends View
 	{
 		int width = getWidth();
 		int height = getHeight();
-		int radius = (Math.min(width, height) / 2) - this.padding;
+		int radius = ClockFace.getRadius(width, height);
 
 		return radius;
 	}
-
-	private int getFrontColor()
-	{
-		return this.color;
-	}
-
-	private int getBackColor()
-	{
-		return this.backgroundColor;
-	}
-
-	/**
-	 * just calls invalidate()
-	 */
-	private class DrawRunnable extends AbstractRunnable
-	{
-		DrawRunnable(Handler handler, int delay)
-		{
-			super(handler, delay);
-		}
-
-		@Override
-		public void run()
-		{
-			// redraw
-			invalidate();
-			// Repeat this the same runnable code block again another delay
-			postRunnable(true);
-		}
-	}
-
-	/**
-	 * sync with internal clock
-	 */
-	private class SyncRunnable extends AbstractRunnable
-	{
-		SyncRunnable(Handler handler, int delay)
-		{
-			super(handler, delay);
-		}
-
-		@Override
-		public void run()
-		{
-			synchronize();
-			// post with delay
-			postRunnable(true);
-		}
-	}
 }
@@ -0,0 +1,275 @@
+package ch.omartin.clok;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.preference.PreferenceManager;
+import android.util.AttributeSet;
+import android.util.DisplayMetrics;
+import android.view.View;
+
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * static preview of the dial for the settings.
+ * the dial under and over the hands is cached in two layers, preference changes only mark what they affect and
+ * everything is applied once, on the next frame.
+ */
+public class DialPreviewView extends View implements RenderCache.Listener
+{
+	private static final int LAYER_FACE = 1;
+	private static final int LAYER_DIAL = 1 << 1;
+	private static final int LAYER_COMPLICATIONS = 1 << 2;
+
+	// classic advertising time
+	private final int previewHours = 10;
+	private final int previewMinutes = 10;
+	private final int previewSeconds = 30;
+
+	private final RenderCache renderCache;
+	private final CanvasRenderer renderer;
+	private final Date date;
+	// size of the dial as on the main screen, scaled down to the view
+	private final int dialSize;
+	private final int textSize;
+
+	private ClockFace clockFace;
+	private List<Complication> complications = Collections.emptyList();
+	private Bitmap underLayer;
+	private Bitmap overLayer;
+	private int dirtyLayers = LAYER_FACE | LAYER_DIAL | LAYER_COMPLICATIONS;
+
+	public DialPreviewView(Context context, AttributeSet attributeSet)
+	{
+		super(context, attributeSet);
+
+		this.renderCache = RenderCache.getInstance(context);
+		this.renderer = new CanvasRenderer(this.renderCache);
+
+		DisplayMetrics metrics = getResources().getDisplayMetrics();
+		this.dialSize = Math.min(metrics.widthPixels, metrics.heightPixels);
+		this.textSize = getResources().getDimensionPixelSize(R.dimen.fontSize);
+
+		Calendar calendar = Calendar.getInstance();
+		calendar.set(Calendar.HOUR_OF_DAY, this.previewHours);
+		calendar.set(Calendar.MINUTE, this.previewMinutes);
+		calendar.set(Calendar.SECOND, this.previewSeconds);
+		this.date = calendar.getTime();
+	}
+
+	/**
+	 * mark the layers affected by a preference, the view is redrawn once per frame whatever the number of changes
+	 * @param key key of the changed preference
+	 */
+	void onPreferenceChanged(String key)
+	{
+		int layers;
+
+		switch(key)
+		{
+			case SettingsActivity.KEY_PREF_HOUR_MODE:
+			case SettingsActivity.KEY_PREF_INVERT_COLORS:
+				layers = LAYER_FACE | LAYER_DIAL;
+				break;
+			case SettingsActivity.KEY_PREF_DISPLAY_SECONDS:
+			case SettingsActivity.KEY_PREF_DISPLAY_MINUTES:
+			case SettingsActivity.KEY_PREF_DISPLAY_HOURS:
+				// hands and time only, the dial layers stay
+				layers = LAYER_FACE;
+				break;
+			case SettingsActivity.KEY_PREF_COMPLICATION_DATE:
+			case SettingsActivity.KEY_PREF_COMPLICATION_MOON:
+			case SettingsActivity.KEY_PREF_COMPLICATION_BATTERY:
+			case SettingsActivity.KEY_PREF_COMPLICATION_TIME_ZONE:
+			case SettingsActivity.KEY_PREF_COMPLICATION_TIME_ZONE_ID:
+			case SettingsActivity.KEY_PREF_COMPLICATION_COUNTDOWN:
+			case SettingsActivity.KEY_PREF_COMPLICATION_COUNTDOWN_TARGET:
+				// drawn over everything, the layers stay
+				layers = LAYER_COMPLICATIONS;
+				break;
+			default:
+				// not visible on the dial
+				return;
+		}
+
+		this.dirtyLayers |= layers;
+		postInvalidateOnAnimation();
+	}
+
+	@Override
+	protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight)
+	{
+		super.onSizeChanged(width, height, oldWidth, oldHeight);
+
+		this.dirtyLayers |= LAYER_DIAL;
+	}
+
+	@Override
+	protected void onAttachedToWindow()
+	{
+		super.onAttachedToWindow();
+
+		this.renderCache.addListener(this);
+	}
+
+	@Override
+	protected void onDetachedFromWindow()
+	{
+		super.onDetachedFromWindow();
+
+		this.renderCache.removeListener(this);
+		onReleaseBitmaps();
+	}
+
+	/**
+	 * drop the layers, they are rendered again on the next frame
+	 */
+	@Override
+	public void onReleaseBitmaps()
+	{
+		recycleLayers();
+		this.dirtyLayers |= LAYER_DIAL;
+	}
+
+	@Override
+	protected void onDraw(final Canvas canvas)
+	{
+		super.onDraw(canvas);
+
+		int size = Math.min(getWidth(), getHeight());
+
+		if(size <= 0)
+		{
+			return;
+		}
+
+		if((this.dirtyLayers & LAYER_FACE) != 0)
+		{
+			this.clockFace = createClockFace();
+		}
+
+		if((this.dirtyLayers & LAYER_DIAL) != 0)
+		{
+			renderLayers(size);
+		}
+
+		if((this.dirtyLayers & LAYER_COMPLICATIONS) != 0)
+		{
+			this.complications = createComplications();
+		}
+
+		this.dirtyLayers = 0;
+
+		float left = (getWidth() - size) / 2.0f;
+		float top = (getHeight() - size) / 2.0f;
+
+		canvas.drawBitmap(this.underLayer, left, top, null);
+
+		canvas.save();
+		canvas.translate(left, top);
+		scale(canvas, size);
+		this.renderer.setCanvas(canvas, this.dialSize, this.dialSize);
+		this.clockFace.drawHands(this.renderer, this.previewHours, this.previewMinutes, this.previewSeconds);
+		canvas.restore();
+
+		canvas.drawBitmap(this.overLayer, left, top, null);
+
+		canvas.save();
+		canvas.translate(left, top);
+		scale(canvas, size);
+		this.clockFace.drawTime(this.renderer, this.date);
+
+		for(Complication complication : this.complications)
+		{
+			complication.draw(this.renderer, this.clockFace.getComplicationBrush());
+		}
+
+		this.renderer.setCanvas(null);
+		canvas.restore();
+	}
+
+	private ClockFace createClockFace()
+	{
+		SharedPreferences sharedPref = PreferenceManager.getDefaultSharedPreferences(getContext());
+		TickMode tickMode = sharedPref.getBoolean(SettingsActivity.KEY_PREF_HOUR_MODE, false) ? TickMode.MODE_24 : TickMode.MODE_12;
+
+		return new ClockFace(tickMode,
+				sharedPref.getBoolean(SettingsActivity.KEY_PREF_INVERT_COLORS, false),
+				sharedPref.getBoolean(SettingsActivity.KEY_PREF_DISPLAY_HOURS, true),
+				sharedPref.getBoolean(SettingsActivity.KEY_PREF_DISPLAY_MINUTES, true),
+				sharedPref.getBoolean(SettingsActivity.KEY_PREF_DISPLAY_SECONDS, true),
+				this.textSize);
+	}
+
+	/**
+	 * complications of the settings, as they are at the preview time
+	 */
+	private List<Complication> createComplications()
+	{
+		SharedPreferences sharedPref = PreferenceManager.getDefaultSharedPreferences(getContext());
+		List<Complication> complications = ClockEngineFragment.createComplications(getContext(), sharedPref);
+
+		for(Complication complication : complications)
+		{
+			complication.update(this.date.getTime());
+		}
+
+		return complications;
+	}
+
+	/**
+	 * render what is under the hands and what is over them, bitmaps are reused while the size does not change and
+	 * come from the pool otherwise
+	 */
+	private void renderLayers(int size)
+	{
+		if(this.underLayer == null || this.underLayer.getWidth() != size)
+		{
+			recycleLayers();
+			this.underLayer = this.renderCache.obtainBitmap(size, size, Bitmap.Config.ARGB_8888);
+			this.overLayer = this.renderCache.obtainBitmap(size, size, Bitmap.Config.ARGB_8888);
+		}
+		else
+		{
+			this.underLayer.eraseColor(Color.TRANSPARENT);
+			this.overLayer.eraseColor(Color.TRANSPARENT);
+		}
+
+		Canvas canvas = new Canvas(this.underLayer);
+		scale(canvas, size);
+		this.renderer.setCanvas(canvas, this.dialSize, this.dialSize);
+		this.clockFace.drawBackground(this.renderer);
+		this.clockFace.drawLightStatus(this.renderer);
+		this.clockFace.drawPerimeter(this.renderer);
+		this.clockFace.drawCenter(this.renderer);
+		this.clockFace.drawTicks(this.renderer);
+
+		canvas = new Canvas(this.overLayer);
+		scale(canvas, size);
+		this.renderer.setCanvas(canvas, this.dialSize, this.dialSize);
+		this.clockFace.drawNumbers(this.renderer);
+		this.renderer.setCanvas(null);
+	}
+
+	private void scale(Canvas canvas, int size)
+	{
+		float scale = (float) size / this.dialSize;
+		canvas.scale(scale, scale);
+	}
+
+	private void recycleLayers()
+	{
+		if(this.underLayer != null)
+		{
+			this.renderCache.releaseBitmap(this.underLayer);
+			this.renderCache.releaseBitmap(this.overLayer);
+			this.underLayer = null;
+			this.overLayer = null;
+		}
+	}
+}
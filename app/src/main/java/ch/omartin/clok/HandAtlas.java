@@ -0,0 +1,276 @@
+package ch.omartin.clok;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * hands pre-rendered at each discrete angle in a single alpha bitmap, so that drawing the hands is a few blits.
+ * the sprites only hold coverage, the color comes from the paint used to draw them. only the first quadrant is
+ * rendered, the other angles are the same sprites blitted with the canvas turned by a multiple of 90 degrees.
+ */
+final class HandAtlas
+{
+	private static final int MAX_WIDTH = 2048;
+	// room for anti-aliasing around each sprite
+	private static final int PADDING = 2;
+	private static final int NBR_QUADRANTS = 4;
+
+	private final RenderCache cache;
+	private final Bitmap bitmap;
+	// cell of each sprite in the atlas
+	private final Rect[] hourCells;
+	private final Rect[] minuteCells;
+	private final Rect secondCell;
+	// position of each sprite relative to the center of the clock
+	private final Rect[] hourBounds;
+	private final Rect[] minuteBounds;
+	private final Rect secondBounds;
+
+	// reused on each draw, ui thread only
+	private final Rect destination = new Rect();
+
+	private HandAtlas(RenderCache cache, Bitmap bitmap, Rect[] hourCells, Rect[] hourBounds, Rect[] minuteCells, Rect[] minuteBounds,
+			Rect secondCell, Rect secondBounds)
+	{
+		this.cache = cache;
+		this.bitmap = bitmap;
+		this.hourCells = hourCells;
+		this.hourBounds = hourBounds;
+		this.minuteCells = minuteCells;
+		this.minuteBounds = minuteBounds;
+		this.secondCell = secondCell;
+		this.secondBounds = secondBounds;
+	}
+
+	/**
+	 * render all sprites, meant to run off the ui thread
+	 * @param tickMode 12 or 24 hour mode, one hour sprite per hour tick
+	 * @param radius radius of the clock
+	 * @param centerRadius where the hands start
+	 * @param secondsRadius radius of the seconds dot
+	 * @param strokeWidth width of the hands
+	 * @param budget max size of the atlas in bytes
+	 * @param cache where the bitmap comes from and goes back to
+	 * @return the atlas, or null if it does not fit in the budget
+	 */
+	static HandAtlas build(TickMode tickMode, int radius, int centerRadius, int secondsRadius, float strokeWidth, long budget,
+			RenderCache cache)
+	{
+		// every tick count is a multiple of 4
+		int nbrHours = tickMode.getNbrHoursTicks() / NBR_QUADRANTS;
+		int nbrMinutes = tickMode.getNbrMinutesTicks() / NBR_QUADRANTS;
+		int hourLength = radius / 2;
+		int minuteLength = (int) (radius * 0.75);
+
+		Rect[] hourBounds = new Rect[nbrHours];
+		Rect[] minuteBounds = new Rect[nbrMinutes];
+		Rect secondBounds = new Rect(-secondsRadius - PADDING, -secondsRadius - PADDING, secondsRadius + PADDING, secondsRadius + PADDING);
+
+		for(int i=0; i<nbrHours; i++)
+		{
+			hourBounds[i] = getLineBounds(getDegrees(i, nbrHours * NBR_QUADRANTS), centerRadius, hourLength, strokeWidth);
+		}
+
+		for(int i=0; i<nbrMinutes; i++)
+		{
+			minuteBounds[i] = getLineBounds(getDegrees(i, nbrMinutes * NBR_QUADRANTS), centerRadius, minuteLength, strokeWidth);
+		}
+
+		// shelf packing, tallest sprites first so that each shelf holds sprites of similar height
+		final Rect[] bounds = new Rect[nbrHours + nbrMinutes + 1];
+		System.arraycopy(hourBounds, 0, bounds, 0, nbrHours);
+		System.arraycopy(minuteBounds, 0, bounds, nbrHours, nbrMinutes);
+		bounds[bounds.length - 1] = secondBounds;
+
+		Integer[] order = new Integer[bounds.length];
+
+		for(int i=0; i<order.length; i++)
+		{
+			order[i] = i;
+		}
+
+		Arrays.sort(order, new Comparator<Integer>()
+		{
+			@Override
+			public int compare(Integer first, Integer second)
+			{
+				return bounds[second].height() - bounds[first].height();
+			}
+		});
+
+		Rect[] cells = new Rect[bounds.length];
+		int[] cursor = new int[3];
+		int width = 0;
+
+		for(int index : order)
+		{
+			cells[index] = pack(bounds[index], cursor);
+			width = Math.max(width, cells[index].right);
+		}
+
+		Rect[] hourCells = Arrays.copyOfRange(cells, 0, nbrHours);
+		Rect[] minuteCells = Arrays.copyOfRange(cells, nbrHours, nbrHours + nbrMinutes);
+		Rect secondCell = cells[cells.length - 1];
+
+		int height = cursor[1] + cursor[2];
+		long size = (long) width * height;
+
+		if(size > budget || radius > MAX_WIDTH)
+		{
+			Log.d("hand atlas", "needs " + size + " bytes, budget is " + budget + ", hands will be drawn live");
+			return null;
+		}
+
+		Bitmap bitmap;
+
+		try
+		{
+			bitmap = cache.obtainBitmap(width, height, Bitmap.Config.ALPHA_8);
+		}
+		catch(OutOfMemoryError oom)
+		{
+			Log.e("hand atlas", "could not allocate " + size + " bytes", oom);
+			return null;
+		}
+
+		Canvas canvas = new Canvas(bitmap);
+		Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+		paint.setStrokeWidth(strokeWidth);
+
+		for(int i=0; i<nbrHours; i++)
+		{
+			renderLine(canvas, paint, hourCells[i], hourBounds[i], getDegrees(i, nbrHours * NBR_QUADRANTS), centerRadius, hourLength);
+		}
+
+		for(int i=0; i<nbrMinutes; i++)
+		{
+			renderLine(canvas, paint, minuteCells[i], minuteBounds[i], getDegrees(i, nbrMinutes * NBR_QUADRANTS), centerRadius, minuteLength);
+		}
+
+		canvas.save();
+		canvas.clipRect(secondCell);
+		canvas.translate(secondCell.left - secondBounds.left, secondCell.top - secondBounds.top);
+		canvas.drawCircle(0, 0, secondsRadius, paint);
+		canvas.restore();
+
+		Log.d("hand atlas", width + "x" + height + ", " + size + " bytes");
+
+		return new HandAtlas(cache, bitmap, hourCells, hourBounds, minuteCells, minuteBounds, secondCell, secondBounds);
+	}
+
+	void drawHour(Canvas canvas, int hour, int centerX, int centerY, Paint paint)
+	{
+		drawRotated(canvas, this.hourCells, this.hourBounds, hour, centerX, centerY, paint);
+	}
+
+	void drawMinute(Canvas canvas, int minute, int centerX, int centerY, Paint paint)
+	{
+		drawRotated(canvas, this.minuteCells, this.minuteBounds, minute, centerX, centerY, paint);
+	}
+
+	/**
+	 * the seconds dot looks the same at every angle, only its position changes
+	 */
+	void drawSecond(Canvas canvas, int second, int centerX, int centerY, int radius, Paint paint)
+	{
+		double radians = Math.toRadians(getDegrees(second, 60));
+		int x = centerX + (int) Math.round(Math.sin(radians) * radius);
+		int y = centerY - (int) Math.round(Math.cos(radians) * radius);
+
+		draw(canvas, this.secondCell, this.secondBounds, x, y, paint);
+	}
+
+	/**
+	 * give the bitmap back to the cache, the atlas cannot be drawn anymore
+	 */
+	void recycle()
+	{
+		this.cache.releaseBitmap(this.bitmap);
+	}
+
+	/**
+	 * blit the sprite of the first quadrant with the same angle modulo 90 degrees, turned to the quadrant of the index.
+	 * quarter turns around an integer center map pixels to pixels, nothing is resampled.
+	 */
+	private void drawRotated(Canvas canvas, Rect[] cells, Rect[] bounds, int index, int centerX, int centerY, Paint paint)
+	{
+		int quadrant = index / cells.length;
+		int sprite = index % cells.length;
+
+		if(quadrant == 0)
+		{
+			draw(canvas, cells[sprite], bounds[sprite], centerX, centerY, paint);
+			return;
+		}
+
+		canvas.save();
+		canvas.rotate(quadrant * 90, centerX, centerY);
+		draw(canvas, cells[sprite], bounds[sprite], centerX, centerY, paint);
+		canvas.restore();
+	}
+
+	private void draw(Canvas canvas, Rect cell, Rect bounds, int x, int y, Paint paint)
+	{
+		this.destination.set(x + bounds.left, y + bounds.top, x + bounds.right, y + bounds.bottom);
+		canvas.drawBitmap(this.bitmap, cell, this.destination, paint);
+	}
+
+	private static float getDegrees(int index, int count)
+	{
+		return ((float) index / count) * 360;
+	}
+
+	/**
+	 * bounds of a line going from start to end at the given angle, clockwise from 12 o'clock
+	 */
+	private static Rect getLineBounds(float degrees, int start, int end, float strokeWidth)
+	{
+		double radians = Math.toRadians(degrees);
+		double sin = Math.sin(radians);
+		double cos = Math.cos(radians);
+		double x1 = sin * start;
+		double y1 = -cos * start;
+		double x2 = sin * end;
+		double y2 = -cos * end;
+		double margin = (strokeWidth / 2) + PADDING;
+
+		return new Rect((int) Math.floor(Math.min(x1, x2) - margin), (int) Math.floor(Math.min(y1, y2) - margin),
+				(int) Math.ceil(Math.max(x1, x2) + margin), (int) Math.ceil(Math.max(y1, y2) + margin));
+	}
+
+	/**
+	 * place a sprite in the next free cell
+	 * @param cursor x, y and height of the current shelf, updated
+	 */
+	private static Rect pack(Rect bounds, int[] cursor)
+	{
+		if(cursor[0] + bounds.width() > MAX_WIDTH)
+		{
+			cursor[0] = 0;
+			cursor[1] += cursor[2];
+			cursor[2] = 0;
+		}
+
+		Rect cell = new Rect(cursor[0], cursor[1], cursor[0] + bounds.width(), cursor[1] + bounds.height());
+		cursor[0] += bounds.width();
+		cursor[2] = Math.max(cursor[2], bounds.height());
+
+		return cell;
+	}
+
+	private static void renderLine(Canvas canvas, Paint paint, Rect cell, Rect bounds, float degrees, int start, int end)
+	{
+		canvas.save();
+		canvas.clipRect(cell);
+		canvas.translate(cell.left - bounds.left, cell.top - bounds.top);
+		canvas.rotate(degrees);
+		canvas.drawLine(0, -start, 0, -end, paint);
+		canvas.restore();
+	}
+}
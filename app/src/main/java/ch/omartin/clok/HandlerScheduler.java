@@ -0,0 +1,28 @@
+package ch.omartin.clok;
+
+import android.os.Handler;
+
+/**
+ * scheduler posting to the looper of a handler
+ */
+class HandlerScheduler implements Scheduler
+{
+	private final Handler handler;
+
+	HandlerScheduler(Handler handler)
+	{
+		this.handler = handler;
+	}
+
+	@Override
+	public boolean post(Runnable runnable, long delayMillis)
+	{
+		return this.handler.postDelayed(runnable, delayMillis);
+	}
+
+	@Override
+	public void remove(Runnable runnable)
+	{
+		this.handler.removeCallbacks(runnable);
+	}
+}
@@ -17,6 +17,8 @@ import android.view.MenuItem;
  */
 public class MainActivity extends AppCompatActivity
 {
+	private ClokView clokView;
+
 	@Override
 	protected void onCreate(Bundle savedInstanceState)
 	{
@@ -28,6 +30,28 @@ public class MainActivity extends AppCompatActivity
 		setSupportActionBar(myToolbar);
 
 		PreferenceManager.setDefaultValues(this, R.xml.preferences, false);
+
+		this.clokView = (ClokView) findViewById(R.id.view);
+	}
+
+	@Override
+	protected void onStart()
+	{
+		// a stale fragment is replaced before the fragments are started, the engine survives rotations
+		ClockEngineFragment fragment = ClockEngineFragment.get(this);
+
+		super.onStart();
+
+		// the new view only attaches to it
+		this.clokView.attach(fragment);
+	}
+
+	@Override
+	protected void onStop()
+	{
+		this.clokView.detach();
+
+		super.onStop();
 	}
 
 	@Override
@@ -51,6 +75,9 @@ public class MainActivity extends AppCompatActivity
 				Intent intent = new Intent(this, SettingsActivity.class);
 				startActivity(intent);
 				return true;
+			case R.id.action_power_stats:
+				startActivity(new Intent(this, PowerStatsActivity.class));
+				return true;
 			case R.id.action_about:
 				String versionName = BuildConfig.VERSION_NAME;
 				int versionCode = BuildConfig.VERSION_CODE;
@@ -0,0 +1,267 @@
+package ch.omartin.clok;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Calendar;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * wake-up and power accounting of the clock's schedulers, aggregated per local hour in a small persisted ring
+ */
+final class PowerStats
+{
+	static final String SOURCE_DRAW = "draw";
+	static final String SOURCE_SNTP = "sntp";
+
+	private static final String PREFS_NAME = "power_stats";
+	// buckets keyed by local hour, the earlier ring was keyed by UTC hour
+	private static final String KEY_RING = "local_ring";
+	private static final int NBR_HOURS = 24;
+	private static final long HOUR_MILLIS = 3_600_000L;
+
+	private static PowerStats instance;
+
+	private final SharedPreferences preferences;
+	private final Bucket[] ring = new Bucket[NBR_HOURS];
+
+	private PowerStats(Context context)
+	{
+		this.preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+
+		load();
+	}
+
+	static synchronized PowerStats getInstance(Context context)
+	{
+		if(instance == null)
+		{
+			instance = new PowerStats(context.getApplicationContext());
+		}
+
+		return instance;
+	}
+
+	/**
+	 * account one wake-up of a scheduler
+	 * @param source name of the runnable that woke up
+	 * @param redundant true if nothing visible changed during this tick
+	 * @param cpuNanos thread cpu time spent in the tick
+	 */
+	synchronized void recordWakeup(String source, boolean redundant, long cpuNanos)
+	{
+		Counter counter = getCurrentCounter(source);
+		counter.wakeups++;
+		counter.cpuNanos += cpuNanos;
+
+		if(redundant)
+		{
+			counter.redundant++;
+		}
+	}
+
+	/**
+	 * account cpu time spent outside of a wake-up, e.g. in onDraw
+	 * @param source name of the runnable the work belongs to
+	 * @param cpuNanos thread cpu time spent
+	 */
+	synchronized void recordCpuTime(String source, long cpuNanos)
+	{
+		getCurrentCounter(source).cpuNanos += cpuNanos;
+	}
+
+	/**
+	 * write the ring to the shared preferences
+	 */
+	synchronized void save()
+	{
+		JSONArray array = new JSONArray();
+
+		try
+		{
+			for(Bucket bucket : this.ring)
+			{
+				if(bucket != null)
+				{
+					array.put(bucket.toJson());
+				}
+			}
+		}
+		catch(JSONException jex)
+		{
+			Log.e("power stats save", jex.getMessage(), jex);
+			return;
+		}
+
+		this.preferences.edit().putString(KEY_RING, array.toString()).apply();
+	}
+
+	/**
+	 * human readable report, most recent hour first
+	 * @return one line per hour and source
+	 */
+	synchronized String getReport()
+	{
+		StringBuilder builder = new StringBuilder();
+		long currentHour = getLocalHour(System.currentTimeMillis());
+		// the keys count local hours, formatted in UTC they show the local time
+		Calendar label = Calendar.getInstance(TimeZone.getTimeZone("UTC"), Locale.getDefault());
+
+		for(long hour = currentHour; hour > currentHour - NBR_HOURS; hour--)
+		{
+			Bucket bucket = this.ring[(int) (hour % NBR_HOURS)];
+
+			if(bucket == null || bucket.hour != hour)
+			{
+				continue;
+			}
+
+			label.setTimeInMillis(hour * HOUR_MILLIS);
+
+			for(Map.Entry<String, Counter> entry : bucket.counters.entrySet())
+			{
+				Counter counter = entry.getValue();
+				builder.append(String.format(Locale.getDefault(), "%tF %<tH:00  %-5s  %5d wake-ups  %5d redundant  %7.1f ms cpu%n",
+						label, entry.getKey(), counter.wakeups, counter.redundant, counter.cpuNanos / 1_000_000.0));
+			}
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * @return hours since the epoch in local time, so that zones off by half an hour get their own hours
+	 */
+	private static long getLocalHour(long timeMillis)
+	{
+		return (timeMillis + TimeZone.getDefault().getOffset(timeMillis)) / HOUR_MILLIS;
+	}
+
+	private Counter getCurrentCounter(String source)
+	{
+		long hour = getLocalHour(System.currentTimeMillis());
+		int index = (int) (hour % NBR_HOURS);
+		Bucket bucket = this.ring[index];
+
+		if(bucket == null || bucket.hour != hour)
+		{
+			if(bucket != null)
+			{
+				// an hour is complete, persist it
+				save();
+			}
+
+			bucket = new Bucket(hour);
+			this.ring[index] = bucket;
+		}
+
+		Counter counter = bucket.counters.get(source);
+
+		if(counter == null)
+		{
+			counter = new Counter();
+			bucket.counters.put(source, counter);
+		}
+
+		return counter;
+	}
+
+	private void load()
+	{
+		String json = this.preferences.getString(KEY_RING, null);
+
+		if(json == null)
+		{
+			return;
+		}
+
+		try
+		{
+			JSONArray array = new JSONArray(json);
+
+			for(int i=0; i<array.length(); i++)
+			{
+				Bucket bucket = Bucket.fromJson(array.getJSONObject(i));
+				this.ring[(int) (bucket.hour % NBR_HOURS)] = bucket;
+			}
+		}
+		catch(JSONException jex)
+		{
+			Log.e("power stats load", jex.getMessage(), jex);
+		}
+	}
+
+	/**
+	 * counters of one hour
+	 */
+	private static class Bucket
+	{
+		private final long hour;
+		private final Map<String, Counter> counters = new LinkedHashMap<>();
+
+		Bucket(long hour)
+		{
+			this.hour = hour;
+		}
+
+		JSONObject toJson() throws JSONException
+		{
+			JSONObject object = new JSONObject();
+			object.put("hour", this.hour);
+
+			for(Map.Entry<String, Counter> entry : this.counters.entrySet())
+			{
+				Counter counter = entry.getValue();
+				JSONArray values = new JSONArray();
+				values.put(counter.wakeups);
+				values.put(counter.redundant);
+				values.put(counter.cpuNanos);
+				object.put(entry.getKey(), values);
+			}
+
+			return object;
+		}
+
+		static Bucket fromJson(JSONObject object) throws JSONException
+		{
+			Bucket bucket = new Bucket(object.getLong("hour"));
+			Iterator<String> keys = object.keys();
+
+			while(keys.hasNext())
+			{
+				String key = keys.next();
+
+				if(!"hour".equals(key))
+				{
+					JSONArray values = object.getJSONArray(key);
+					Counter counter = new Counter();
+					counter.wakeups = values.getInt(0);
+					counter.redundant = values.getInt(1);
+					counter.cpuNanos = values.getLong(2);
+					bucket.counters.put(key, counter);
+				}
+			}
+
+			return bucket;
+		}
+	}
+
+	/**
+	 * counters of one source
+	 */
+	private static class Counter
+	{
+		private int wakeups;
+		private int redundant;
+		private long cpuNanos;
+	}
+}
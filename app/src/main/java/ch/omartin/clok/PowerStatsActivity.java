@@ -0,0 +1,37 @@
+package ch.omartin.clok;
+
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.widget.TextView;
+
+/**
+ * shows wake-ups per hour by source and the state of the render cache
+ */
+public class PowerStatsActivity extends AppCompatActivity
+{
+	@Override
+	protected void onCreate(Bundle savedInstanceState)
+	{
+		super.onCreate(savedInstanceState);
+
+		setContentView(R.layout.activity_power_stats);
+	}
+
+	@Override
+	protected void onResume()
+	{
+		super.onResume();
+
+		String report = PowerStats.getInstance(this).getReport();
+
+		if(report.isEmpty())
+		{
+			report = getString(R.string.power_stats_empty);
+		}
+
+		report += "\n" + RenderCache.getInstance(this).getReport();
+
+		TextView textView = (TextView) findViewById(R.id.power_stats_text);
+		textView.setText(report);
+	}
+}
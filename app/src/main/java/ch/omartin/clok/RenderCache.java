@@ -0,0 +1,316 @@
+package ch.omartin.clok;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * render resources shared by the views of the app: paints, text metrics and a small pool of bitmaps reused across
+ * resizes. gives memory back by trim level when the system asks for it.
+ */
+final class RenderCache implements ComponentCallbacks2
+{
+	// pooled bitmaps not in use, anything beyond is recycled on release
+	private static final long POOL_BUDGET = 8L * 1024 * 1024;
+	// text changes every second, the metrics are dropped rather than growing forever
+	private static final int MAX_TEXT_METRICS = 256;
+
+	private static RenderCache instance;
+
+	private final Map<Brush, Paint> paints = new HashMap<>();
+	private final Map<Brush, Map<String, int[]>> textMetrics = new HashMap<>();
+	private final LinkedList<Bitmap> pool = new LinkedList<>();
+	private final List<Listener> listeners = new ArrayList<>();
+	private final Rect bounds = new Rect();
+
+	private int nbrTextMetrics = 0;
+	private long pooledBytes = 0;
+	// bitmaps handed out and not released yet
+	private long usedBytes = 0;
+
+	private final Stats paintStats = new Stats();
+	private final Stats textStats = new Stats();
+	private final Stats bitmapStats = new Stats();
+
+	/**
+	 * owner of bitmaps outside of the pool, told to drop them when memory is critical
+	 */
+	interface Listener
+	{
+		void onReleaseBitmaps();
+	}
+
+	private RenderCache()
+	{
+	}
+
+	static synchronized RenderCache getInstance(Context context)
+	{
+		if(instance == null)
+		{
+			instance = new RenderCache();
+			context.getApplicationContext().registerComponentCallbacks(instance);
+		}
+
+		return instance;
+	}
+
+	/**
+	 * @return the android paint matching the brush, ui thread only
+	 */
+	Paint getPaint(Brush brush)
+	{
+		Paint paint = this.paints.get(brush);
+
+		if(paint != null)
+		{
+			this.paintStats.hits++;
+			return paint;
+		}
+
+		this.paintStats.misses++;
+		paint = new Paint();
+		paint.setAntiAlias(brush.isAntiAlias());
+		paint.setColor(brush.getColor());
+		paint.setStrokeWidth(brush.getStrokeWidth());
+		paint.setStyle(brush.getStyle() == Brush.Style.STROKE ? Paint.Style.STROKE : Paint.Style.FILL);
+
+		if(brush.getTextSize() > 0)
+		{
+			paint.setTextSize(brush.getTextSize());
+		}
+
+		this.paints.put(brush, paint);
+
+		return paint;
+	}
+
+	/**
+	 * measure a text, ui thread only
+	 * @param bounds receives the width and the height of the text
+	 */
+	void getTextBounds(String text, Brush brush, int[] bounds)
+	{
+		Map<String, int[]> metrics = this.textMetrics.get(brush);
+
+		if(metrics == null)
+		{
+			metrics = new HashMap<>();
+			this.textMetrics.put(brush, metrics);
+		}
+
+		int[] size = metrics.get(text);
+
+		if(size != null)
+		{
+			this.textStats.hits++;
+		}
+		else
+		{
+			this.textStats.misses++;
+
+			if(this.nbrTextMetrics >= MAX_TEXT_METRICS)
+			{
+				clearTextMetrics();
+				this.textMetrics.put(brush, metrics);
+			}
+
+			getPaint(brush).getTextBounds(text, 0, text.length(), this.bounds);
+			size = new int[] {this.bounds.width(), this.bounds.height()};
+			metrics.put(text, size);
+			this.nbrTextMetrics++;
+		}
+
+		bounds[0] = size[0];
+		bounds[1] = size[1];
+	}
+
+	/**
+	 * a cleared bitmap from the pool if one is large enough, a new one otherwise. may be called from any thread.
+	 * @throws OutOfMemoryError if a new bitmap cannot be allocated
+	 */
+	synchronized Bitmap obtainBitmap(int width, int height, Bitmap.Config config)
+	{
+		long size = getByteCount(width, height, config);
+		Iterator<Bitmap> iterator = this.pool.iterator();
+
+		while(iterator.hasNext())
+		{
+			Bitmap bitmap = iterator.next();
+
+			if(bitmap.getConfig() == config && bitmap.getAllocationByteCount() >= size)
+			{
+				iterator.remove();
+				this.pooledBytes -= bitmap.getAllocationByteCount();
+				this.usedBytes += bitmap.getAllocationByteCount();
+				this.bitmapStats.hits++;
+
+				bitmap.reconfigure(width, height, config);
+				bitmap.eraseColor(Color.TRANSPARENT);
+
+				return bitmap;
+			}
+		}
+
+		this.bitmapStats.misses++;
+		Bitmap bitmap = Bitmap.createBitmap(width, height, config);
+		this.usedBytes += bitmap.getAllocationByteCount();
+
+		return bitmap;
+	}
+
+	/**
+	 * give a bitmap back, it is kept for the next obtain if it fits in the pool budget. may be called from any thread.
+	 */
+	synchronized void releaseBitmap(Bitmap bitmap)
+	{
+		long size = bitmap.getAllocationByteCount();
+		this.usedBytes -= size;
+
+		if(!bitmap.isMutable() || this.pooledBytes + size > POOL_BUDGET)
+		{
+			bitmap.recycle();
+			return;
+		}
+
+		this.pool.add(bitmap);
+		this.pooledBytes += size;
+	}
+
+	void addListener(Listener listener)
+	{
+		this.listeners.add(listener);
+	}
+
+	void removeListener(Listener listener)
+	{
+		this.listeners.remove(listener);
+	}
+
+	@Override
+	public void onTrimMemory(int level)
+	{
+		Log.d("render cache trim", level + ", before: " + getFootprint() + " bytes");
+
+		// idle bitmaps go first, whatever the level
+		clearPool();
+
+		if(level >= TRIM_MEMORY_RUNNING_LOW)
+		{
+			// cheap to recreate
+			clearTextMetrics();
+			this.paints.clear();
+		}
+
+		if(level >= TRIM_MEMORY_RUNNING_CRITICAL)
+		{
+			// optional bitmaps in use, their owners fall back to drawing live
+			for(Listener listener : new ArrayList<>(this.listeners))
+			{
+				listener.onReleaseBitmaps();
+			}
+
+			clearPool();
+		}
+
+		Log.d("render cache trim", level + ", after: " + getFootprint() + " bytes");
+	}
+
+	@Override
+	public void onLowMemory()
+	{
+		onTrimMemory(TRIM_MEMORY_COMPLETE);
+	}
+
+	@Override
+	public void onConfigurationChanged(Configuration configuration)
+	{
+	}
+
+	/**
+	 * @return estimated bytes held by the bitmaps in use and in the pool
+	 */
+	synchronized long getFootprint()
+	{
+		return this.usedBytes + this.pooledBytes;
+	}
+
+	/**
+	 * human readable report of the footprint and of the hit/miss counts
+	 */
+	synchronized String getReport()
+	{
+		return String.format(Locale.getDefault(), "bitmaps  %8d bytes in use  %8d bytes pooled (%d)%n",
+						this.usedBytes, this.pooledBytes, this.pool.size())
+				+ String.format(Locale.getDefault(), "paints   %5d cached%n", this.paints.size())
+				+ String.format(Locale.getDefault(), "metrics  %5d cached%n", this.nbrTextMetrics)
+				+ this.bitmapStats.format("bitmaps")
+				+ this.paintStats.format("paints")
+				+ this.textStats.format("metrics");
+	}
+
+	private synchronized void clearPool()
+	{
+		for(Bitmap bitmap : this.pool)
+		{
+			bitmap.recycle();
+		}
+
+		this.pool.clear();
+		this.pooledBytes = 0;
+	}
+
+	private void clearTextMetrics()
+	{
+		this.textMetrics.clear();
+		this.nbrTextMetrics = 0;
+	}
+
+	private static long getByteCount(int width, int height, Bitmap.Config config)
+	{
+		int bytesPerPixel;
+
+		switch(config)
+		{
+			case ALPHA_8:
+				bytesPerPixel = 1;
+				break;
+			case RGB_565:
+			case ARGB_4444:
+				bytesPerPixel = 2;
+				break;
+			default:
+				bytesPerPixel = 4;
+				break;
+		}
+
+		return (long) width * height * bytesPerPixel;
+	}
+
+	private static class Stats
+	{
+		private long hits = 0;
+		private long misses = 0;
+
+		String format(String name)
+		{
+			long total = this.hits + this.misses;
+			double ratio = total > 0 ? (100.0 * this.hits) / total : 0;
+
+			return String.format(Locale.getDefault(), "%-7s  %8d hits  %8d misses  %5.1f %%%n", name, this.hits, this.misses, ratio);
+		}
+	}
+}
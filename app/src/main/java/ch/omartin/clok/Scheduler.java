@@ -0,0 +1,19 @@
+package ch.omartin.clok;
+
+/**
+ * where runnables are posted, a handler on the device and a fake queue in the unit tests
+ */
+interface Scheduler
+{
+	/**
+	 * @param runnable what to run
+	 * @param delayMillis delay in millis, 0 to run as soon as possible
+	 * @return false if the runnable could not be posted
+	 */
+	boolean post(Runnable runnable, long delayMillis);
+
+	/**
+	 * remove all pending posts of the runnable
+	 */
+	void remove(Runnable runnable);
+}
@@ -13,6 +13,18 @@ public class SettingsActivity extends AppCompatActivity
 	public static final String KEY_PREF_DISPLAY_SECONDS = "display_seconds";
 	public static final String KEY_PREF_DISPLAY_MINUTES = "display_minutes";
 	public static final String KEY_PREF_DISPLAY_HOURS = "display_hours";
+	public static final String KEY_PREF_TICK_SOUND = "tick_sound";
+	public static final String KEY_PREF_HOUR_CHIME = "hour_chime";
+	public static final String KEY_PREF_SNTP = "sntp";
+	public static final String KEY_PREF_SNTP_SERVER = "sntp_server";
+	public static final String KEY_PREF_HAND_ATLAS_BUDGET = "hand_atlas_budget";
+	public static final String KEY_PREF_COMPLICATION_DATE = "complication_date";
+	public static final String KEY_PREF_COMPLICATION_MOON = "complication_moon";
+	public static final String KEY_PREF_COMPLICATION_BATTERY = "complication_battery";
+	public static final String KEY_PREF_COMPLICATION_TIME_ZONE = "complication_time_zone";
+	public static final String KEY_PREF_COMPLICATION_TIME_ZONE_ID = "complication_time_zone_id";
+	public static final String KEY_PREF_COMPLICATION_COUNTDOWN = "complication_countdown";
+	public static final String KEY_PREF_COMPLICATION_COUNTDOWN_TARGET = "complication_countdown_target";
 
 	@Override
 	protected void onCreate(Bundle savedInstanceState)
@@ -1,16 +1,67 @@
 package ch.omartin.clok;
 
+import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.support.v7.preference.PreferenceFragmentCompat;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
 
 /**
- * fragment settings
+ * fragment settings, with a live preview of the dial above the preferences
  */
-public class SettingsFragment extends PreferenceFragmentCompat
+public class SettingsFragment extends PreferenceFragmentCompat implements SharedPreferences.OnSharedPreferenceChangeListener
 {
+	private DialPreviewView dialPreview;
+
 	@Override
 	public void onCreatePreferences(Bundle savedInstanceState, String rootKey)
 	{
 		setPreferencesFromResource(R.xml.preferences, rootKey);
 	}
+
+	@Override
+	public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState)
+	{
+		View preferences = super.onCreateView(inflater, container, savedInstanceState);
+		LinearLayout layout = (LinearLayout) inflater.inflate(R.layout.fragment_settings, container, false);
+		layout.addView(preferences, new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, 0, 1));
+		this.dialPreview = (DialPreviewView) layout.findViewById(R.id.dial_preview);
+
+		return layout;
+	}
+
+	@Override
+	public void onResume()
+	{
+		super.onResume();
+
+		getPreferenceScreen().getSharedPreferences().registerOnSharedPreferenceChangeListener(this);
+	}
+
+	@Override
+	public void onPause()
+	{
+		getPreferenceScreen().getSharedPreferences().unregisterOnSharedPreferenceChangeListener(this);
+
+		super.onPause();
+	}
+
+	@Override
+	public void onDestroyView()
+	{
+		super.onDestroyView();
+
+		this.dialPreview = null;
+	}
+
+	@Override
+	public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key)
+	{
+		if(this.dialPreview != null)
+		{
+			this.dialPreview.onPreferenceChanged(key);
+		}
+	}
 }
@@ -0,0 +1,167 @@
+package ch.omartin.clok;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.Arrays;
+
+/**
+ * minimal SNTP client (RFC 4330), one query per call
+ */
+final class SntpClient
+{
+	static final int NTP_PORT = 123;
+	static final int PACKET_SIZE = 48;
+	// seconds between 1900 (NTP era) and 1970 (java era)
+	static final long OFFSET_1900_TO_1970 = 2_208_988_800L;
+
+	static final int MODE_CLIENT = 3;
+	static final int MODE_SERVER = 4;
+	static final int VERSION = 3;
+
+	static final int ORIGINATE_OFFSET = 24;
+	static final int RECEIVE_OFFSET = 32;
+	static final int TRANSMIT_OFFSET = 40;
+
+	private final int timeoutMillis;
+	private final byte[] buffer = new byte[PACKET_SIZE];
+
+	SntpClient(int timeoutMillis)
+	{
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * query a server once
+	 * @param host name or address of the server
+	 * @param port usually {@link #NTP_PORT}
+	 * @return measured offset and round trip
+	 * @throws IOException if the server does not answer or answers garbage
+	 */
+	synchronized Sample query(String host, int port) throws IOException
+	{
+		InetAddress address = InetAddress.getByName(host);
+
+		try(DatagramSocket socket = new DatagramSocket())
+		{
+			socket.setSoTimeout(this.timeoutMillis);
+
+			Arrays.fill(this.buffer, (byte) 0);
+			this.buffer[0] = (byte) ((VERSION << 3) | MODE_CLIENT);
+
+			// local clock for the timestamps, monotonic clock for the round trip
+			long requestTime = System.currentTimeMillis();
+			long requestNanos = System.nanoTime();
+			writeTimestamp(this.buffer, TRANSMIT_OFFSET, requestTime);
+			// as it went through the NTP encoding, the server echoes it back
+			long originateTime = readTimestamp(this.buffer, TRANSMIT_OFFSET);
+
+			DatagramPacket request = new DatagramPacket(this.buffer, PACKET_SIZE, address, port);
+			socket.send(request);
+
+			DatagramPacket response = new DatagramPacket(this.buffer, PACKET_SIZE);
+			socket.receive(response);
+
+			long responseTime = requestTime + ((System.nanoTime() - requestNanos) / 1_000_000);
+
+			return parse(this.buffer, response.getLength(), originateTime, requestTime, responseTime);
+		}
+	}
+
+	private static Sample parse(byte[] buffer, int length, long originateTime, long requestTime, long responseTime)
+			throws IOException
+	{
+		if(length < PACKET_SIZE)
+		{
+			throw new IOException("short packet : " + length);
+		}
+
+		int leap = (buffer[0] >> 6) & 0x3;
+		int mode = buffer[0] & 0x7;
+		int stratum = buffer[1] & 0xff;
+
+		if(mode != MODE_SERVER)
+		{
+			throw new IOException("unexpected mode : " + mode);
+		}
+		if(leap == 3 || stratum == 0 || stratum > 15)
+		{
+			throw new IOException("unsynchronized server : leap " + leap + " stratum " + stratum);
+		}
+		if(readTimestamp(buffer, ORIGINATE_OFFSET) != originateTime)
+		{
+			throw new IOException("originate timestamp does not match request");
+		}
+
+		long receiveTime = readTimestamp(buffer, RECEIVE_OFFSET);
+		long transmitTime = readTimestamp(buffer, TRANSMIT_OFFSET);
+		long offset = ((receiveTime - requestTime) + (transmitTime - responseTime)) / 2;
+		long roundTrip = (responseTime - requestTime) - (transmitTime - receiveTime);
+
+		return new Sample(responseTime, offset, Math.max(0, roundTrip));
+	}
+
+	/**
+	 * @return java millis read from a 64 bits NTP timestamp, in the era of 1968 to 2104 (RFC 4330 section 3)
+	 */
+	static long readTimestamp(byte[] buffer, int offset)
+	{
+		long seconds = readUnsigned32(buffer, offset);
+		long fraction = readUnsigned32(buffer, offset + 4);
+
+		// the seconds wrap in 2036, a clear most significant bit is in the next era
+		if((seconds & 0x8000_0000L) == 0)
+		{
+			seconds += 1L << 32;
+		}
+
+		return ((seconds - OFFSET_1900_TO_1970) * 1_000) + ((fraction * 1_000) >>> 32);
+	}
+
+	/**
+	 * write java millis as a 64 bits NTP timestamp, the seconds wrap in 2036
+	 */
+	static void writeTimestamp(byte[] buffer, int offset, long time)
+	{
+		long seconds = (time / 1_000) + OFFSET_1900_TO_1970;
+		// rounded up so that reading it back gives the same millis
+		long fraction = (((time % 1_000) << 32) + 999) / 1_000;
+
+		writeUnsigned32(buffer, offset, seconds);
+		writeUnsigned32(buffer, offset + 4, fraction);
+	}
+
+	private static long readUnsigned32(byte[] buffer, int offset)
+	{
+		return ((buffer[offset] & 0xffL) << 24) | ((buffer[offset + 1] & 0xffL) << 16)
+				| ((buffer[offset + 2] & 0xffL) << 8) | (buffer[offset + 3] & 0xffL);
+	}
+
+	private static void writeUnsigned32(byte[] buffer, int offset, long value)
+	{
+		buffer[offset] = (byte) (value >> 24);
+		buffer[offset + 1] = (byte) (value >> 16);
+		buffer[offset + 2] = (byte) (value >> 8);
+		buffer[offset + 3] = (byte) value;
+	}
+
+	/**
+	 * one measurement against the server
+	 */
+	static final class Sample
+	{
+		// local time at which the answer was received
+		final long localTime;
+		// server time minus local time
+		final long offset;
+		final long roundTrip;
+
+		Sample(long localTime, long offset, long roundTrip)
+		{
+			this.localTime = localTime;
+			this.offset = offset;
+			this.roundTrip = roundTrip;
+		}
+	}
+}
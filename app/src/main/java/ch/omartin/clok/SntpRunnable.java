@@ -0,0 +1,67 @@
+package ch.omartin.clok;
+
+import android.util.Log;
+
+import java.io.IOException;
+
+/**
+ * polls the SNTP server on a background handler, with adaptive interval and exponential backoff
+ */
+class SntpRunnable extends AbstractRunnable
+{
+	private static final int TIMEOUT = 5_000;
+
+	private final SntpClient client = new SntpClient(TIMEOUT);
+	private final TimeDiscipline timeDiscipline;
+	private final String server;
+	private int nbrFailures = 0;
+	// written on the sntp thread, read on the ui thread when resuming
+	private volatile long nextQueryTime = 0;
+
+	SntpRunnable(Scheduler scheduler, PowerStats powerStats, TimeDiscipline timeDiscipline, String server)
+	{
+		super(scheduler, (int) TimeDiscipline.MIN_POLL_INTERVAL, PowerStats.SOURCE_SNTP, powerStats);
+
+		this.timeDiscipline = timeDiscipline;
+		this.server = server;
+	}
+
+	@Override
+	boolean tick()
+	{
+		boolean accepted = false;
+		long interval;
+
+		try
+		{
+			SntpClient.Sample sample = this.client.query(this.server, SntpClient.NTP_PORT);
+			accepted = this.timeDiscipline.addSample(sample);
+			this.nbrFailures = 0;
+			interval = this.timeDiscipline.getPollInterval();
+
+			Log.d("sntp sample", "offset " + sample.offset + " ms, round trip " + sample.roundTrip + " ms, accepted "
+					+ accepted + ", drift " + this.timeDiscipline.getDrift() + ", next in " + interval + " ms");
+		}
+		catch(IOException iex)
+		{
+			this.nbrFailures++;
+			interval = TimeDiscipline.getBackoffInterval(this.nbrFailures);
+
+			Log.e("sntp query", this.server + " : " + iex.getMessage() + ", next in " + interval + " ms");
+		}
+
+		this.nextQueryTime = System.currentTimeMillis() + interval;
+		postRunnableDelayed(interval);
+
+		return accepted;
+	}
+
+	/**
+	 * post again after a cancel, at the time the next query was due so that a quick stop/start does not query early
+	 */
+	void resume()
+	{
+		cancel();
+		postRunnableDelayed(Math.max(0, this.nextQueryTime - System.currentTimeMillis()));
+	}
+}
@@ -0,0 +1,171 @@
+package ch.omartin.clok;
+
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.media.AudioTimestamp;
+import android.media.AudioTrack;
+import android.os.Build;
+import android.util.Log;
+
+/**
+ * audible tick and hour chime, preloaded in static audio tracks so that each sound is a retrigger without
+ * decoding nor allocation
+ */
+final class TickSound
+{
+	private static final int SAMPLE_RATE = 44_100;
+	private static final int TICK_MILLIS = 12;
+	private static final float TICK_FREQUENCY = 2_000.0f;
+	private static final int CHIME_MILLIS = 1_500;
+	private static final float CHIME_FREQUENCY = 880.0f;
+
+	private final AudioTrack tickTrack;
+	private final AudioTrack chimeTrack;
+	private final AudioTimestamp timestamp = new AudioTimestamp();
+
+	// System.nanoTime() of the boundary of the last tick, 0 if not measured yet
+	private long lastTickNanos = 0;
+
+	private final int latencyLogPeriod = 60;
+	private long latencyMicros = 0;
+	private int nbrLatencies = 0;
+
+	TickSound()
+	{
+		this.tickTrack = createTrack(generateTick());
+		this.chimeTrack = createTrack(generateChime());
+	}
+
+	/**
+	 * retrigger the tick, to be called when the second hand is drawn
+	 * @param boundaryNanos System.nanoTime() of the boundary the engine scheduled the new second for
+	 */
+	void tick(long boundaryNanos)
+	{
+		logLatency();
+		retrigger(this.tickTrack);
+		this.lastTickNanos = boundaryNanos;
+	}
+
+	/**
+	 * retrigger the hour chime
+	 */
+	void chime()
+	{
+		retrigger(this.chimeTrack);
+	}
+
+	void release()
+	{
+		this.tickTrack.release();
+		this.chimeTrack.release();
+	}
+
+	private void retrigger(AudioTrack track)
+	{
+		if(track.getState() != AudioTrack.STATE_INITIALIZED)
+		{
+			return;
+		}
+
+		if(track.getPlayState() != AudioTrack.PLAYSTATE_STOPPED)
+		{
+			track.stop();
+		}
+
+		track.reloadStaticData();
+		track.play();
+	}
+
+	/**
+	 * log the average skew between the boundary of the previous ticks, the time base the hands are drawn for, and the
+	 * moment their first frame left the speaker
+	 */
+	private void logLatency()
+	{
+		if(this.lastTickNanos == 0 || !this.tickTrack.getTimestamp(this.timestamp) || this.timestamp.framePosition <= 0)
+		{
+			return;
+		}
+
+		long firstFrameNanos = this.timestamp.nanoTime - ((this.timestamp.framePosition * 1_000_000_000L) / SAMPLE_RATE);
+		this.latencyMicros += (firstFrameNanos - this.lastTickNanos) / 1_000;
+		this.nbrLatencies++;
+
+		if(this.nbrLatencies >= this.latencyLogPeriod)
+		{
+			Log.d("tick latency", Build.MODEL + " : " + (this.latencyMicros / this.nbrLatencies) + " us");
+			this.latencyMicros = 0;
+			this.nbrLatencies = 0;
+		}
+	}
+
+	private static AudioTrack createTrack(short[] samples)
+	{
+		AudioAttributes attributes = new AudioAttributes.Builder()
+				.setUsage(AudioAttributes.USAGE_ASSISTANCE_SONIFICATION)
+				.setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+				.build();
+		AudioFormat format = new AudioFormat.Builder()
+				.setSampleRate(SAMPLE_RATE)
+				.setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+				.setChannelMask(AudioFormat.CHANNEL_OUT_MONO)
+				.build();
+		AudioTrack track = new AudioTrack(attributes, format, samples.length * 2, AudioTrack.MODE_STATIC, AudioManager.AUDIO_SESSION_ID_GENERATE);
+
+		if(track.write(samples, 0, samples.length) < 0)
+		{
+			Log.e("tick sound", "could not load samples");
+		}
+
+		return track;
+	}
+
+	/**
+	 * short decaying click
+	 */
+	private static short[] generateTick()
+	{
+		return generate(TICK_MILLIS, new float[] {TICK_FREQUENCY}, 0.5f, 3.0f);
+	}
+
+	/**
+	 * bell-like decaying fundamental with a fifth above it
+	 */
+	private static short[] generateChime()
+	{
+		return generate(CHIME_MILLIS, new float[] {CHIME_FREQUENCY, CHIME_FREQUENCY * 1.5f}, 0.4f, 4.0f);
+	}
+
+	/**
+	 * sum of sines with an exponential envelope
+	 * @param millis duration
+	 * @param frequencies partials in Hz
+	 * @param volume peak amplitude, 0 to 1
+	 * @param timeConstants how many time constants the envelope decays over the duration
+	 */
+	private static short[] generate(int millis, float[] frequencies, float volume, float timeConstants)
+	{
+		int length = (SAMPLE_RATE * millis) / 1_000;
+		short[] samples = new short[length];
+		double scale = (volume * Short.MAX_VALUE) / frequencies.length;
+		double decay = (timeConstants * 1_000.0) / millis;
+
+		for(int i=0; i<length; i++)
+		{
+			double time = (double) i / SAMPLE_RATE;
+			double envelope = Math.exp(-decay * time);
+			double value = 0;
+
+			for(float frequency : frequencies)
+			{
+				value += Math.sin(2 * Math.PI * frequency * time);
+			}
+
+			samples[i] = (short) (scale * envelope * value);
+		}
+
+		return samples;
+	}
+}
@@ -0,0 +1,208 @@
+package ch.omartin.clok;
+
+/**
+ * estimates offset and drift of the local clock from SNTP samples and slews the displayed correction
+ */
+final class TimeDiscipline
+{
+	// number of samples kept for the round trip filter and the drift estimation
+	static final int FILTER_SIZE = 8;
+	// samples slower than this factor of the best round trip are considered delayed by the network
+	static final int ROUND_TRIP_FACTOR = 2;
+	// corrections bigger than this are applied at once
+	static final long STEP_THRESHOLD = 5_000;
+	// max change of the applied correction, millis per millis
+	static final double SLEW_RATE = 0.01;
+	// fewer samples only give the offset, a slope through them would mostly fit the network jitter
+	static final int MIN_DRIFT_SAMPLES = FILTER_SIZE / 2;
+	// worst drift of a quartz crystal, millis per millis. anything beyond is noise.
+	static final double MAX_DRIFT = 500e-6;
+
+	// error allowed to accumulate between two queries
+	static final long TOLERANCE = 100;
+	static final long MIN_POLL_INTERVAL = 64_000;
+	static final long MAX_POLL_INTERVAL = 86_400_000;
+
+	private final SntpClient.Sample[] samples = new SntpClient.Sample[FILTER_SIZE];
+	private int nbrSamples = 0;
+	private int next = 0;
+
+	// offset = intercept + drift * (localTime - reference)
+	private boolean isEstimated = false;
+	private long reference;
+	private double intercept;
+	private double drift;
+
+	// correction currently applied to the display
+	private boolean isApplied = false;
+	private double appliedOffset;
+	private long appliedTime;
+
+	/**
+	 * add a new measurement and update the estimation
+	 * @param sample measurement from the server
+	 * @return false if the sample was rejected by the round trip filter
+	 */
+	synchronized boolean addSample(SntpClient.Sample sample)
+	{
+		// the local clock was set, earlier samples are meaningless
+		if(this.isEstimated && Math.abs(sample.offset - predict(sample.localTime)) > STEP_THRESHOLD)
+		{
+			this.nbrSamples = 0;
+			this.next = 0;
+		}
+
+		this.samples[this.next] = sample;
+		this.next = (this.next + 1) % FILTER_SIZE;
+		this.nbrSamples = Math.min(this.nbrSamples + 1, FILTER_SIZE);
+
+		long bestRoundTrip = Long.MAX_VALUE;
+
+		for(int i=0; i<this.nbrSamples; i++)
+		{
+			bestRoundTrip = Math.min(bestRoundTrip, this.samples[i].roundTrip);
+		}
+
+		long maxRoundTrip = Math.max(1, bestRoundTrip) * ROUND_TRIP_FACTOR;
+
+		if(sample.roundTrip > maxRoundTrip)
+		{
+			return false;
+		}
+
+		estimate(maxRoundTrip);
+
+		return true;
+	}
+
+	/**
+	 * least squares fit of the samples that passed the round trip filter, the mean offset while they are too few
+	 */
+	private void estimate(long maxRoundTrip)
+	{
+		int count = 0;
+		double sumX = 0;
+		double sumY = 0;
+		long reference = Long.MAX_VALUE;
+
+		for(int i=0; i<this.nbrSamples; i++)
+		{
+			reference = Math.min(reference, this.samples[i].localTime);
+		}
+
+		for(int i=0; i<this.nbrSamples; i++)
+		{
+			SntpClient.Sample sample = this.samples[i];
+
+			if(sample.roundTrip <= maxRoundTrip)
+			{
+				sumX += sample.localTime - reference;
+				sumY += sample.offset;
+				count++;
+			}
+		}
+
+		double meanX = sumX / count;
+		double meanY = sumY / count;
+		double covariance = 0;
+		double variance = 0;
+
+		for(int i=0; i<this.nbrSamples; i++)
+		{
+			SntpClient.Sample sample = this.samples[i];
+
+			if(sample.roundTrip <= maxRoundTrip)
+			{
+				double x = (sample.localTime - reference) - meanX;
+				covariance += x * (sample.offset - meanY);
+				variance += x * x;
+			}
+		}
+
+		this.reference = reference;
+		this.drift = count >= MIN_DRIFT_SAMPLES && variance > 0 ? covariance / variance : 0;
+		this.drift = Math.max(-MAX_DRIFT, Math.min(MAX_DRIFT, this.drift));
+		this.intercept = meanY - (this.drift * meanX);
+		this.isEstimated = true;
+	}
+
+	private double predict(long localTime)
+	{
+		return this.intercept + (this.drift * (localTime - this.reference));
+	}
+
+	/**
+	 * correction to add to the local clock, slewed towards the estimation
+	 * @param localTime current local time
+	 * @return millis to add to the local time
+	 */
+	synchronized long getOffset(long localTime)
+	{
+		if(!this.isEstimated)
+		{
+			return 0;
+		}
+
+		double target = predict(localTime);
+
+		if(!this.isApplied || Math.abs(target - this.appliedOffset) > STEP_THRESHOLD)
+		{
+			this.appliedOffset = target;
+		}
+		else
+		{
+			double maxChange = Math.max(0, localTime - this.appliedTime) * SLEW_RATE;
+			double change = Math.max(-maxChange, Math.min(maxChange, target - this.appliedOffset));
+			this.appliedOffset += change;
+		}
+
+		this.isApplied = true;
+		this.appliedTime = localTime;
+
+		return Math.round(this.appliedOffset);
+	}
+
+	/**
+	 * @return estimated drift of the local clock, millis per millis
+	 */
+	synchronized double getDrift()
+	{
+		return this.drift;
+	}
+
+	/**
+	 * adaptive interval: query again when the drift makes the error reach the tolerance
+	 * @return millis until the next query
+	 */
+	synchronized long getPollInterval()
+	{
+		// not enough samples to trust the drift yet
+		if(this.nbrSamples < MIN_DRIFT_SAMPLES)
+		{
+			return MIN_POLL_INTERVAL;
+		}
+
+		double drift = Math.abs(this.drift);
+
+		if(drift == 0)
+		{
+			return MAX_POLL_INTERVAL;
+		}
+
+		long interval = (long) (TOLERANCE / drift);
+
+		return Math.max(MIN_POLL_INTERVAL, Math.min(MAX_POLL_INTERVAL, interval));
+	}
+
+	/**
+	 * exponential backoff after failed queries
+	 * @param nbrFailures consecutive failures, at least 1
+	 * @return millis until the next query
+	 */
+	static long getBackoffInterval(int nbrFailures)
+	{
+		int shift = Math.min(nbrFailures, 20);
+
+		return Math.min(MAX_POLL_INTERVAL, MIN_POLL_INTERVAL << shift);
+	}
+}
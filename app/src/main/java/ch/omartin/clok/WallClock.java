@@ -0,0 +1,21 @@
+package ch.omartin.clok;
+
+/**
+ * where the engine reads the time, the system clock on the device and a clock moved by hand in the unit tests
+ */
+interface WallClock
+{
+	WallClock SYSTEM = new WallClock()
+	{
+		@Override
+		public long currentTimeMillis()
+		{
+			return System.currentTimeMillis();
+		}
+	};
+
+	/**
+	 * @return milliseconds since the epoch, before any SNTP correction
+	 */
+	long currentTimeMillis();
+}
@@ -0,0 +1,200 @@
+package ch.omartin.clok;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * the engine outlives the views: displays attach without adding callbacks nor resyncing, and the hands show the
+ * wall clock whenever the engine starts or wakes up late. time is driven by the fake scheduler.
+ */
+public class ClockEngineTest
+{
+	private static final int NBR_RESTARTS = 20;
+
+	@Test
+	public void ticks_shareOneCallback()
+	{
+		FakeScheduler scheduler = new FakeScheduler(getTime(10, 20, 30, 250));
+		List<Complication> complications = Arrays.asList(new DateComplication(ComplicationSlot.TOP_LEFT),
+				new TimeZoneComplication(ComplicationSlot.TOP, TimeZone.getTimeZone("UTC")));
+		ClockEngine engine = new ClockEngine(scheduler, scheduler, null, TickMode.MODE_12, true, complications);
+
+		engine.start();
+		engine.attach(new CountingDisplay());
+
+		// hands and complications share one wake-up
+		for(int i=0; i<NBR_RESTARTS; i++)
+		{
+			scheduler.runPending();
+			scheduler.advance(Complication.SECOND);
+
+			assertEquals(1, scheduler.size());
+		}
+	}
+
+	@Test
+	public void attach_drawsCachedStateWithoutResync()
+	{
+		FakeScheduler scheduler = new FakeScheduler(getTime(10, 20, 30, 250));
+		ClockEngine engine = new ClockEngine(scheduler, scheduler, null, TickMode.MODE_24, true, Collections.<Complication>emptyList());
+		CountingDisplay display = new CountingDisplay();
+
+		engine.start();
+		engine.attach(display);
+		scheduler.runPending();
+
+		int visibleState = engine.getVisibleState();
+		int nbrRuns = scheduler.getNbrRuns();
+		engine.detach(display);
+
+		CountingDisplay attached = new CountingDisplay();
+		engine.attach(attached);
+
+		// drawn right away, from the time already known
+		assertEquals(1, attached.nbrInvalidates);
+		assertEquals(nbrRuns, scheduler.getNbrRuns());
+		assertEquals(visibleState, engine.getVisibleState());
+
+		// the old view is not redrawn anymore
+		int oldInvalidates = display.nbrInvalidates;
+		scheduler.runPending();
+		engine.redraw();
+		assertEquals(oldInvalidates, display.nbrInvalidates);
+	}
+
+	@Test
+	public void stopStart_keepsCallbacksConstant()
+	{
+		FakeScheduler scheduler = new FakeScheduler(getTime(10, 20, 30, 250));
+		ClockEngine engine = new ClockEngine(scheduler, scheduler, null, TickMode.MODE_12, true, Collections.<Complication>emptyList());
+
+		engine.start();
+		scheduler.runPending();
+
+		// home and back, the activity is really stopped each time
+		for(int i=0; i<NBR_RESTARTS; i++)
+		{
+			engine.stop();
+			assertEquals(0, scheduler.size());
+
+			engine.start();
+			scheduler.runPending();
+			assertEquals(1, scheduler.size());
+		}
+	}
+
+	@Test
+	public void stopStart_showsWallClock()
+	{
+		FakeScheduler scheduler = new FakeScheduler(getTime(10, 20, 30, 250));
+		ClockEngine engine = new ClockEngine(scheduler, scheduler, null, TickMode.MODE_24, true, Collections.<Complication>emptyList());
+
+		engine.start();
+		scheduler.runPending();
+		engine.stop();
+
+		// back within the same minute, after the tick of the second hand was missed
+		scheduler.advance(1_500);
+		engine.start();
+		scheduler.runPending();
+
+		assertShows(engine, 10, 20, 31);
+	}
+
+	@Test
+	public void missedTick_showsWallClock()
+	{
+		FakeScheduler scheduler = new FakeScheduler(getTime(10, 20, 30, 250));
+		ClockEngine engine = new ClockEngine(scheduler, scheduler, null, TickMode.MODE_24, true, Collections.<Complication>emptyList());
+
+		engine.start();
+		scheduler.runPending();
+
+		// the pending tick runs late, as after a dropped wake-up
+		scheduler.advance(2_500);
+		scheduler.runPending();
+
+		assertShows(engine, 10, 20, 32);
+		assertEquals(getTime(10, 20, 32, 0), engine.getHandsTime());
+	}
+
+	@Test
+	public void midnight_wrapsHands()
+	{
+		FakeScheduler scheduler = new FakeScheduler(getTime(23, 59, 58, 600));
+		ClockEngine engine = new ClockEngine(scheduler, scheduler, null, TickMode.MODE_24, true, Collections.<Complication>emptyList());
+
+		engine.start();
+		scheduler.runPending();
+		assertShows(engine, 23, 59, 58);
+
+		scheduler.advance(400);
+		scheduler.runPending();
+		assertShows(engine, 23, 59, 59);
+		assertEquals(getTime(23, 59, 59, 0), engine.getHandsTime());
+
+		scheduler.advance(Complication.SECOND);
+		scheduler.runPending();
+		assertShows(engine, 0, 0, 0);
+
+		scheduler.advance(Complication.SECOND);
+		scheduler.runPending();
+		assertShows(engine, 0, 0, 1);
+	}
+
+	@Test
+	public void stop_removesCallbacks()
+	{
+		FakeScheduler scheduler = new FakeScheduler(getTime(10, 20, 30, 250));
+		ClockEngine engine = new ClockEngine(scheduler, scheduler, null, TickMode.MODE_12, false, Collections.<Complication>emptyList());
+
+		engine.start();
+		engine.start();
+		assertEquals(1, scheduler.size());
+
+		engine.stop();
+		assertEquals(0, scheduler.size());
+	}
+
+	/**
+	 * @return a time of 2018-03-14 in the default zone, the one the engine uses
+	 */
+	private static long getTime(int hours, int minutes, int seconds, int millis)
+	{
+		Calendar calendar = Calendar.getInstance();
+		calendar.clear();
+		calendar.set(2018, Calendar.MARCH, 14, hours, minutes, seconds);
+
+		return calendar.getTimeInMillis() + millis;
+	}
+
+	private static void assertShows(ClockEngine engine, int hours, int minutes, int seconds)
+	{
+		assertEquals(hours, engine.getHours());
+		assertEquals(minutes, engine.getMinutes());
+		assertEquals(seconds, engine.getSeconds());
+	}
+
+	private static class CountingDisplay implements ClockEngine.Display
+	{
+		private int nbrInvalidates = 0;
+
+		@Override
+		public void onInvalidate()
+		{
+			this.nbrInvalidates++;
+		}
+
+		@Override
+		public void onInvalidateComplication(int index)
+		{
+		}
+	}
+}
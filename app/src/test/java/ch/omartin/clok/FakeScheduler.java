@@ -0,0 +1,81 @@
+package ch.omartin.clok;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * scheduler keeping the posted runnables in a list, run on demand. also the clock of the tests, its time only moves
+ * when told.
+ */
+class FakeScheduler implements Scheduler, WallClock
+{
+	private final List<Runnable> pending = new ArrayList<>();
+	private int nbrRuns = 0;
+	private long timeMillis;
+
+	/**
+	 * @param timeMillis time at which the clock starts
+	 */
+	FakeScheduler(long timeMillis)
+	{
+		this.timeMillis = timeMillis;
+	}
+
+	@Override
+	public boolean post(Runnable runnable, long delayMillis)
+	{
+		this.pending.add(runnable);
+
+		return true;
+	}
+
+	@Override
+	public void remove(Runnable runnable)
+	{
+		while(this.pending.remove(runnable))
+		{
+		}
+	}
+
+	@Override
+	public long currentTimeMillis()
+	{
+		return this.timeMillis;
+	}
+
+	/**
+	 * move the clock forward, nothing runs until asked
+	 */
+	void advance(long millis)
+	{
+		this.timeMillis += millis;
+	}
+
+	/**
+	 * @return number of callbacks waiting to run
+	 */
+	int size()
+	{
+		return this.pending.size();
+	}
+
+	int getNbrRuns()
+	{
+		return this.nbrRuns;
+	}
+
+	/**
+	 * run what is pending now, whatever its delay. the ticks are called directly, without the power accounting.
+	 */
+	void runPending()
+	{
+		List<Runnable> runnables = new ArrayList<>(this.pending);
+		this.pending.clear();
+
+		for(Runnable runnable : runnables)
+		{
+			((AbstractRunnable) runnable).tick();
+			this.nbrRuns++;
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package ch.omartin.clok;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * SNTP client against a local server, and offset/drift estimation on synthetic samples
+ */
+public class SntpClientTest
+{
+	private static final String LOCALHOST = "127.0.0.1";
+
+	@Test
+	public void timestamp_roundTrip() throws Exception
+	{
+		byte[] buffer = new byte[8];
+
+		for(long time = 1_524_000_000_000L; time < 1_524_000_001_000L; time++)
+		{
+			SntpClient.writeTimestamp(buffer, 0, time);
+			assertEquals(time, SntpClient.readTimestamp(buffer, 0));
+		}
+	}
+
+	@Test
+	public void timestamp_wrapsIntoNextEra()
+	{
+		byte[] buffer = new byte[8];
+		// 2040-01-01, after the seconds wrapped in february 2036
+		long time = 2_208_988_800_000L;
+
+		SntpClient.writeTimestamp(buffer, 0, time);
+		assertEquals(0, buffer[0] & 0x80);
+		assertEquals(time, SntpClient.readTimestamp(buffer, 0));
+
+		// last second of the first era
+		time = ((1L << 32) - SntpClient.OFFSET_1900_TO_1970 - 1) * 1_000;
+		SntpClient.writeTimestamp(buffer, 0, time);
+		assertEquals(time, SntpClient.readTimestamp(buffer, 0));
+	}
+
+	@Test
+	public void query_measuresServerOffset() throws Exception
+	{
+		long offset = 42_000;
+
+		try(SntpTestServer server = new SntpTestServer(offset))
+		{
+			SntpClient.Sample sample = new SntpClient(1_000).query(LOCALHOST, server.getPort());
+
+			assertEquals(offset, sample.offset, 50);
+			assertTrue(sample.roundTrip < 1_000);
+		}
+	}
+
+	@Test
+	public void discipline_estimatesDrift()
+	{
+		TimeDiscipline discipline = new TimeDiscipline();
+		double drift = 1e-5;
+		long start = 1_524_000_000_000L;
+
+		for(int i=0; i<TimeDiscipline.FILTER_SIZE; i++)
+		{
+			long localTime = start + (i * 3_600_000L);
+			assertTrue(discipline.addSample(new SntpClient.Sample(localTime, 250 + (long) (drift * (localTime - start)), 20)));
+		}
+
+		assertEquals(drift, discipline.getDrift(), 1e-6);
+		// 100 ms tolerance at 10 ppm
+		assertEquals(10_000_000L, discipline.getPollInterval(), 1_000_000L);
+	}
+
+	@Test
+	public void discipline_rejectsSlowRoundTrips()
+	{
+		TimeDiscipline discipline = new TimeDiscipline();
+		long start = 1_524_000_000_000L;
+
+		assertTrue(discipline.addSample(new SntpClient.Sample(start, 100, 20)));
+		assertFalse(discipline.addSample(new SntpClient.Sample(start + 64_000, 900, 400)));
+		assertEquals(100, discipline.getOffset(start + 64_000));
+	}
+
+	@Test
+	public void discipline_slewsSmallCorrections()
+	{
+		TimeDiscipline discipline = new TimeDiscipline();
+		long start = 1_524_000_000_000L;
+
+		discipline.addSample(new SntpClient.Sample(start, 0, 20));
+		assertEquals(0, discipline.getOffset(start + 63_000));
+
+		// the target moves by a quarter second, the mean of both, one second later only 1% of a second is applied
+		discipline.addSample(new SntpClient.Sample(start + 64_000, 500, 20));
+		assertEquals(10, discipline.getOffset(start + 64_000));
+	}
+
+	@Test
+	public void discipline_needsSamplesForDrift()
+	{
+		TimeDiscipline discipline = new TimeDiscipline();
+		long start = 1_524_000_000_000L;
+
+		// a step of half a second between two samples is not a drift of 7800 ppm
+		discipline.addSample(new SntpClient.Sample(start, 0, 20));
+		discipline.addSample(new SntpClient.Sample(start + 64_000, 500, 20));
+		assertEquals(0, discipline.getDrift(), 0);
+
+		// enough samples, but the slope is bounded by what a crystal does
+		discipline.addSample(new SntpClient.Sample(start + 128_000, 1_000, 20));
+		discipline.addSample(new SntpClient.Sample(start + 192_000, 1_500, 20));
+		assertEquals(TimeDiscipline.MAX_DRIFT, discipline.getDrift(), 0);
+	}
+
+	@Test
+	public void backoff_isExponentialAndCapped()
+	{
+		assertEquals(2 * TimeDiscipline.MIN_POLL_INTERVAL, TimeDiscipline.getBackoffInterval(1));
+		assertEquals(4 * TimeDiscipline.MIN_POLL_INTERVAL, TimeDiscipline.getBackoffInterval(2));
+		assertEquals(TimeDiscipline.MAX_POLL_INTERVAL, TimeDiscipline.getBackoffInterval(50));
+	}
+}
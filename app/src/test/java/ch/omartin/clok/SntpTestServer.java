@@ -0,0 +1,71 @@
+package ch.omartin.clok;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketException;
+
+/**
+ * local stand-in for an SNTP server, answers with the local clock shifted by a fixed offset
+ */
+class SntpTestServer implements Runnable, AutoCloseable
+{
+	private final DatagramSocket socket;
+	private final long offset;
+	private final Thread thread;
+
+	SntpTestServer(long offset) throws IOException
+	{
+		this.offset = offset;
+		this.socket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+		this.thread = new Thread(this, "sntp test server");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	int getPort()
+	{
+		return this.socket.getLocalPort();
+	}
+
+	@Override
+	public void run()
+	{
+		byte[] buffer = new byte[SntpClient.PACKET_SIZE];
+
+		try
+		{
+			while(!this.socket.isClosed())
+			{
+				DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+				this.socket.receive(packet);
+				long receiveTime = System.currentTimeMillis() + this.offset;
+
+				// echo the client transmit timestamp as originate timestamp
+				System.arraycopy(buffer, SntpClient.TRANSMIT_OFFSET, buffer, SntpClient.ORIGINATE_OFFSET, 8);
+				buffer[0] = (byte) ((SntpClient.VERSION << 3) | SntpClient.MODE_SERVER);
+				buffer[1] = 1;
+				SntpClient.writeTimestamp(buffer, SntpClient.RECEIVE_OFFSET, receiveTime);
+				SntpClient.writeTimestamp(buffer, SntpClient.TRANSMIT_OFFSET, System.currentTimeMillis() + this.offset);
+
+				this.socket.send(new DatagramPacket(buffer, buffer.length, packet.getSocketAddress()));
+			}
+		}
+		catch(SocketException sex)
+		{
+			// closed
+		}
+		catch(IOException iex)
+		{
+			throw new IllegalStateException(iex);
+		}
+	}
+
+	@Override
+	public void close() throws InterruptedException
+	{
+		this.socket.close();
+		this.thread.join();
+	}
+}
@@ -0,0 +1,102 @@
+package ch.omartin.clok;
+
+/**
+ * backend independent description of how to draw, each renderer maps it to its own paint objects
+ */
+public final class Brush
+{
+	public enum Style
+	{
+		FILL, STROKE
+	}
+
+	private final int color;
+	private final Style style;
+	private final float strokeWidth;
+	private final float textSize;
+	private final boolean isAntiAlias;
+
+	/**
+	 * @param color ARGB color
+	 * @param style fill or stroke, lines are always stroked
+	 * @param strokeWidth width of lines and outlines, 0 for hairline
+	 * @param textSize size of text in pixels
+	 * @param isAntiAlias smooth edges
+	 */
+	public Brush(int color, Style style, float strokeWidth, float textSize, boolean isAntiAlias)
+	{
+		this.color = color;
+		this.style = style;
+		this.strokeWidth = strokeWidth;
+		this.textSize = textSize;
+		this.isAntiAlias = isAntiAlias;
+	}
+
+	public int getColor()
+	{
+		return color;
+	}
+
+	public Style getStyle()
+	{
+		return style;
+	}
+
+	public float getStrokeWidth()
+	{
+		return strokeWidth;
+	}
+
+	public float getTextSize()
+	{
+		return textSize;
+	}
+
+	public boolean isAntiAlias()
+	{
+		return isAntiAlias;
+	}
+
+	/**
+	 * brushes with the same values are equal, so that renderers can share what they derive from them
+	 */
+	@Override
+	public boolean equals(Object object)
+	{
+		if(this == object)
+		{
+			return true;
+		}
+		if(!(object instanceof Brush))
+		{
+			return false;
+		}
+
+		Brush brush = (Brush) object;
+
+		return this.color == brush.color && this.style == brush.style && Float.compare(this.strokeWidth, brush.strokeWidth) == 0
+				&& Float.compare(this.textSize, brush.textSize) == 0 && this.isAntiAlias == brush.isAntiAlias;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		int result = this.color;
+		result = (31 * result) + this.style.hashCode();
+		result = (31 * result) + Float.floatToIntBits(this.strokeWidth);
+		result = (31 * result) + Float.floatToIntBits(this.textSize);
+		result = (31 * result) + (this.isAntiAlias ? 1 : 0);
+
+		return result;
+	}
+
+	/**
+	 * @param color ARGB color
+	 * @param alpha 0 to 255
+	 * @return the color with its alpha replaced
+	 */
+	public static int withAlpha(int color, int alpha)
+	{
+		return (color & 0x00ffffff) | (alpha << 24);
+	}
+}
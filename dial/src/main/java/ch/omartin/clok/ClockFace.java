@@ -0,0 +1,448 @@
+package ch.omartin.clok;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * drawing steps of the dial, independent of the drawing backend.
+ * not thread safe, use one instance per drawing thread.
+ */
+public class ClockFace
+{
+	public static final int PADDING = 30;
+	public static final int CENTER_RADIUS = 30;
+	public static final int SECONDS_RADIUS = 20;
+	public static final float STROKE_WIDTH = 5.0f;
+
+	public static final int BLACK = 0xff000000;
+	public static final int WHITE = 0xffffffff;
+
+	private final int hoursTickSize = 40;
+	private final int minutesTickSize = 20;
+	private final int numbersTextSize = 40;
+	private final int timeMargin = 10;
+
+	private final String datePattern = "dd.MM.yyyy";
+	private final String timePattern = "H:mm:ss";
+	private final String timeWithoutSecondsPattern = "H:mm";
+	private final Locale locale = Locale.getDefault();
+	private final SimpleDateFormat dateFormatter = new SimpleDateFormat(this.datePattern, this.locale);
+	private final SimpleDateFormat timeFormatter = new SimpleDateFormat(this.timePattern, this.locale);
+	private final SimpleDateFormat timeWithoutSecondsFormatter = new SimpleDateFormat(this.timeWithoutSecondsPattern, this.locale);
+
+	private final TickMode tickMode;
+	private final boolean isHourHandDrawn;
+	private final boolean isMinuteHandDrawn;
+	private final boolean isSecondHandDrawn;
+	private final int color;
+	private final int backgroundColor;
+
+	private final Brush backgroundBrush;
+	private final Brush clockBrush;
+	private final Brush centerBrush;
+	private final Brush tickBrush;
+	private final Brush numberBrush;
+	private final Brush secondsBrush;
+	private final Brush nightBrush;
+	private final Brush dayBrush;
+	private final Brush timeBackgroundBrush;
+	private final Brush timeFrameBrush;
+	private final Brush timeTextBrush;
+
+	private final int[] textBounds = new int[2];
+
+	/**
+	 * @param tickMode 12 or 24 hour mode
+	 * @param isInvertColors white on black instead of black on white
+	 * @param isHourHandDrawn draw the hour hand
+	 * @param isMinuteHandDrawn draw the minute hand
+	 * @param isSecondHandDrawn draw the seconds dot and seconds in the time
+	 * @param textSize size of the time text in pixels
+	 */
+	public ClockFace(TickMode tickMode, boolean isInvertColors, boolean isHourHandDrawn, boolean isMinuteHandDrawn,
+			boolean isSecondHandDrawn, float textSize)
+	{
+		this.tickMode = tickMode;
+		this.isHourHandDrawn = isHourHandDrawn;
+		this.isMinuteHandDrawn = isMinuteHandDrawn;
+		this.isSecondHandDrawn = isSecondHandDrawn;
+		this.color = isInvertColors ? WHITE : BLACK;
+		this.backgroundColor = isInvertColors ? BLACK : WHITE;
+
+		this.backgroundBrush = new Brush(this.backgroundColor, Brush.Style.FILL, 0, 0, false);
+		this.clockBrush = new Brush(this.color, Brush.Style.STROKE, STROKE_WIDTH, 0, true);
+		this.centerBrush = new Brush(this.color, Brush.Style.FILL, STROKE_WIDTH, 0, true);
+		this.tickBrush = new Brush(this.color, Brush.Style.FILL, STROKE_WIDTH, 0, true);
+		this.numberBrush = new Brush(this.color, Brush.Style.FILL, STROKE_WIDTH, this.numbersTextSize, true);
+		this.secondsBrush = new Brush(Brush.withAlpha(this.color, 128), Brush.Style.FILL, 0, 0, true);
+		this.nightBrush = new Brush(Brush.withAlpha(BLACK, 128), Brush.Style.FILL, 0, 0, true);
+		this.dayBrush = new Brush(Brush.withAlpha(WHITE, 128), Brush.Style.FILL, 0, 0, true);
+		this.timeBackgroundBrush = new Brush(Brush.withAlpha(this.backgroundColor, 128), Brush.Style.FILL, 0, textSize, true);
+		this.timeFrameBrush = new Brush(this.color, Brush.Style.STROKE, 0, textSize, true);
+		this.timeTextBrush = new Brush(this.color, Brush.Style.FILL, 0, textSize, true);
+	}
+
+	/**
+	 * draw a whole frame
+	 * @param renderer where to draw
+	 * @param hours position of the hour hand, in hour ticks
+	 * @param minutes position of the minute hand
+	 * @param seconds position of the seconds dot
+	 * @param date time written on the dial
+	 */
+	public void draw(final Renderer renderer, final int hours, final int minutes, final int seconds, final Date date)
+	{
+		drawBackground(renderer);
+		drawLightStatus(renderer);
+		drawPerimeter(renderer);
+		drawCenter(renderer);
+		drawTicks(renderer);
+		drawHands(renderer, hours, minutes, seconds);
+		drawNumbers(renderer);
+		drawTime(renderer, date);
+	}
+
+	/**
+	 * draw clock background
+	 * @param renderer where to draw
+	 */
+	public void drawBackground(final Renderer renderer)
+	{
+		renderer.drawRect(0, 0, renderer.getWidth(), renderer.getHeight(), this.backgroundBrush);
+	}
+
+	/**
+	 * draw clock perimeter
+	 * @param renderer where to draw
+	 */
+	public void drawPerimeter(final Renderer renderer)
+	{
+		int[] center = getCenter(renderer);
+		int radius = getRadius(renderer);
+
+		renderer.drawCircle(center[0], center[1], radius, this.clockBrush);
+	}
+
+	/**
+	 * draw center at the center
+	 * @param renderer where to draw
+	 */
+	public void drawCenter(final Renderer renderer)
+	{
+		int[] center = getCenter(renderer);
+
+		renderer.drawCircle(center[0], center[1], CENTER_RADIUS, this.centerBrush);
+	}
+
+	/**
+	 *
+	 * @param renderer where to draw
+	 */
+	public void drawLightStatus(final Renderer renderer)
+	{
+		if(this.tickMode == TickMode.MODE_24)
+		{
+			// night
+			fillHours(renderer, this.nightBrush, 0, 7);
+			fillHours(renderer, this.nightBrush, 21, 24);
+
+			// day
+			fillHours(renderer, this.dayBrush, 7, 21);
+		}
+	}
+
+	/**
+	 * draw ticks somewhere
+	 * @param renderer where to draw
+	 */
+	public void drawTicks(final Renderer renderer)
+	{
+		int radius = getRadius(renderer);
+		int nbrHoursTicks = this.tickMode.getNbrHoursTicks();
+		float degreesPerTick = 360.0f / nbrHoursTicks;
+		int[] center = getCenter(renderer);
+		float startX = 0;
+		float startY = 0 - radius;
+		float endX = startX;
+		float endY = startY + this.hoursTickSize;
+
+		renderer.save();
+		renderer.translate(center[0], center[1]);
+
+		// hours
+		for(int i=0; i<nbrHoursTicks; i++)
+		{
+			renderer.rotate(degreesPerTick);
+			renderer.drawLine(startX, startY, endX, endY, this.tickBrush);
+		}
+
+		renderer.restore();
+
+		int nbrMinutesTicks = this.tickMode.getNbrMinutesTicks();
+		degreesPerTick = 360.0f / nbrMinutesTicks;
+		endY = startY + this.minutesTickSize;
+
+		renderer.save();
+		renderer.translate(center[0], center[1]);
+
+		// minutes
+		for(int i=0; i<nbrMinutesTicks; i++)
+		{
+			renderer.rotate(degreesPerTick);
+			renderer.drawLine(startX, startY, endX, endY, this.tickBrush);
+		}
+
+		renderer.restore();
+	}
+
+	/**
+	 *
+	 * @param renderer where to draw
+	 */
+	public void drawNumbers(final Renderer renderer)
+	{
+		int[] center = getCenter(renderer);
+		int radius = getRadius(renderer);
+
+		int nbrHoursTicks = this.tickMode.getNbrHoursTicks();
+		float degreesPerTick = 360.0f / nbrHoursTicks;
+		float x = 0;
+		float y = 0 - (radius * 0.75f);
+
+		renderer.save();
+		renderer.translate(center[0], center[1]);
+
+		// hours
+		for(int i=0; i<nbrHoursTicks; i++)
+		{
+			String text = String.valueOf((i + 1) % 25);
+			renderer.getTextBounds(text, this.numberBrush, this.textBounds);
+			renderer.rotate(degreesPerTick);
+			renderer.drawText(text, x - (this.textBounds[0] / 2), y, this.numberBrush);
+		}
+
+		renderer.restore();
+	}
+
+	/**
+	 * draw hours/minutes/seconds somewhere
+	 * @param renderer where to draw
+	 * @param hours position of the hour hand, in hour ticks
+	 * @param minutes position of the minute hand
+	 * @param seconds position of the seconds dot
+	 */
+	public void drawHands(final Renderer renderer, final int hours, final int minutes, final int seconds)
+	{
+		int nbrHoursTicks = this.tickMode.getNbrHoursTicks();
+		int radius = getRadius(renderer);
+		int[] center = getCenter(renderer);
+		int endX;
+		int endY;
+		float degrees;
+
+		renderer.save();
+		renderer.translate(center[0], center[1]);
+
+		// hours
+		if(this.isHourHandDrawn)
+		{
+			degrees = ((float) hours / nbrHoursTicks) * 360;
+			endX = 0;
+			endY = radius / 2;
+			renderer.rotate(degrees);
+			renderer.drawLine(0, -CENTER_RADIUS, endX, -endY, this.tickBrush);
+			renderer.rotate(-degrees);
+		}
+
+		// minutes
+		if(this.isMinuteHandDrawn)
+		{
+			degrees = (minutes / 60.0f) * 360;
+			endX = 0;
+			endY = (int) (radius * 0.75);
+			renderer.rotate(degrees);
+			renderer.drawLine(0, -CENTER_RADIUS, endX, -endY, this.tickBrush);
+			renderer.rotate(-degrees);
+		}
+
+		//seconds
+		if(this.isSecondHandDrawn)
+		{
+			degrees = (seconds / 60.0f) * 360;
+			endY = radius;
+			renderer.rotate(degrees);
+			renderer.drawCircle(0, -endY, SECONDS_RADIUS, this.secondsBrush);
+		}
+
+		renderer.restore();
+	}
+
+	/**
+	 * draw time somewhere
+	 * @param renderer where to draw
+	 * @param date time to write, nothing is drawn if null
+	 */
+	public void drawTime(final Renderer renderer, final Date date)
+	{
+		int radius = getRadius(renderer);
+		int[] center = getCenter(renderer);
+		int margin = this.timeMargin;
+
+		if(date != null)
+		{
+			String dateText = this.dateFormatter.format(date);
+			String timeText = this.timeFormatter.format(date);
+
+			if(!this.isSecondHandDrawn)
+			{
+				timeText = this.timeWithoutSecondsFormatter.format(date);
+			}
+
+			renderer.getTextBounds(dateText, this.timeTextBrush, this.textBounds);
+			int dateWidth = this.textBounds[0];
+			int dateHeight = this.textBounds[1];
+			renderer.getTextBounds(timeText, this.timeTextBrush, this.textBounds);
+			int timeWidth = this.textBounds[0];
+			int timeHeight = this.textBounds[1];
+			// height of
+			float height = dateHeight + timeHeight + (2 * margin);
+			float width = Math.max(dateWidth, timeWidth) + (2 * margin);
+			float x = center[0] - (width / 2);
+			float y = center[1] + (radius / 2.0f);
+			float left = x - margin;
+			float top = y - height - margin;
+			float right = x + width;
+			float bottom = y;
+
+			renderer.drawRect(left, top, right, bottom, this.timeBackgroundBrush);
+			renderer.drawRect(left, top, right, bottom, this.timeFrameBrush);
+
+			renderer.save();
+			renderer.translate(left + margin, top + margin);
+			drawMultipleLines(new String[] {timeText, dateText}, renderer, this.timeTextBrush, margin);
+			renderer.restore();
+		}
+	}
+
+	private int[] drawMultipleLines(String[] lines, Renderer renderer, Brush brush, int margin)
+	{
+		int[] widths = new int[lines.length];
+		int[] heights = new int[lines.length];
+		int maxWidth = 0;
+		int totalHeight = 0;
+		int offset = 0;
+
+		// get required metrics
+		for(int i=0; i<lines.length; i++)
+		{
+			String line = lines[i];
+			renderer.getTextBounds(line, brush, this.textBounds);
+			widths[i] = this.textBounds[0];
+			heights[i] = this.textBounds[1];
+			maxWidth = Math.max(maxWidth, widths[i]);
+			totalHeight += heights[i];
+		}
+
+		int center = maxWidth / 2;
+
+		// draw each line centered
+		for(int i=0; i<lines.length; i++)
+		{
+			offset += heights[i];
+			String line = lines[i];
+			int x = center - (widths[i] / 2);
+			int y = offset;
+			renderer.drawText(line, x, y, brush);
+			offset += margin;
+		}
+
+		int[] result = new int[2];
+		result[0] = maxWidth;
+		result[1] = totalHeight;
+
+		return result;
+	}
+
+	/**
+	 * displays hours on dial background
+	 * @param renderer where to draw
+	 * @param brush how to draw
+	 * @param from hour to start from
+	 * @param to hour to end to
+	 */
+	private void fillHours(final Renderer renderer, final Brush brush, final int from, final int to)
+	{
+		int maxHours = this.tickMode.getNbrHoursTicks();
+
+		if(from > to)
+		{
+			throw new IllegalArgumentException("from is bigger than to : " + from + " " + to);
+		}
+		if(from > maxHours)
+		{
+			throw new IllegalArgumentException("from is bigger than maxHours : " + from + " " + maxHours);
+		}
+
+		int[] center = getCenter(renderer);
+		int radius = getRadius(renderer);
+		float startAngle = (from / (float) maxHours) * 360.0f;
+		float sweepAngle = ((to - from) / (float) maxHours) * 360.0f;
+
+		// move to center of clock
+		renderer.save();
+		renderer.translate(center[0], center[1]);
+		renderer.fillSector(radius, startAngle, sweepAngle, brush);
+		renderer.restore();
+	}
+
+	private int[] getCenter(final Renderer renderer)
+	{
+		int x = renderer.getWidth() / 2;
+		int y = renderer.getHeight() / 2;
+
+		return new int[] {x,y};
+	}
+
+	/**
+	 * @return radius of the dial for a surface of the given size
+	 */
+	public static int getRadius(final int width, final int height)
+	{
+		return (Math.min(width, height) / 2) - PADDING;
+	}
+
+	private int getRadius(final Renderer renderer)
+	{
+		return getRadius(renderer.getWidth(), renderer.getHeight());
+	}
+
+	public TickMode getTickMode()
+	{
+		return tickMode;
+	}
+
+	/**
+	 * @return brush of the hour and minute hands
+	 */
+	public Brush getHandBrush()
+	{
+		return tickBrush;
+	}
+
+	/**
+	 * @return brush of the complications text
+	 */
+	public Brush getComplicationBrush()
+	{
+		return timeTextBrush;
+	}
+
+	/**
+	 * @return brush of the seconds dot
+	 */
+	public Brush getSecondsBrush()
+	{
+		return secondsBrush;
+	}
+}
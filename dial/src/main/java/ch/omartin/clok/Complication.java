@@ -0,0 +1,135 @@
+package ch.omartin.clok;
+
+import java.util.TimeZone;
+
+/**
+ * something shown in a slot of the dial, updated at its own cadence.
+ * the host wakes up once per boundary for all the complications due and redraws only the bounds of those that changed.
+ */
+public abstract class Complication
+{
+	public static final long SECOND = 1_000;
+	public static final long MINUTE = 60 * SECOND;
+	public static final long HOUR = 60 * MINUTE;
+	public static final long DAY = 24 * HOUR;
+
+	private final ComplicationSlot slot;
+	private final long cadence;
+	private final int[] textBounds = new int[2];
+
+	/**
+	 * @param slot where to draw
+	 * @param cadence how often the content may change, one of the constants
+	 */
+	protected Complication(ComplicationSlot slot, long cadence)
+	{
+		this.slot = slot;
+		this.cadence = cadence;
+	}
+
+	public ComplicationSlot getSlot()
+	{
+		return slot;
+	}
+
+	public long getCadence()
+	{
+		return cadence;
+	}
+
+	/**
+	 * refresh the content, called at each boundary of the cadence
+	 * @param timeMillis current time
+	 * @return true if what is drawn changed
+	 */
+	public abstract boolean update(long timeMillis);
+
+	/**
+	 * @return lines of text to draw in the slot
+	 */
+	protected abstract String[] getLines();
+
+	/**
+	 * area covered by the lines as they are now, with a margin for the side bearings and the descents
+	 * @param width width of the dial
+	 * @param height height of the dial
+	 * @param renderer measures the text
+	 * @param brush how to write
+	 * @param bounds receives left, top, right and bottom
+	 */
+	public void getBounds(int width, int height, Renderer renderer, Brush brush, int[] bounds)
+	{
+		String[] lines = getLines();
+		int radius = ClockFace.getRadius(width, height);
+		int x = (width / 2) + Math.round(this.slot.getX() * radius);
+		int y = (height / 2) + Math.round(this.slot.getY() * radius);
+		int lineHeight = measure(lines, renderer, brush);
+		int halfWidth = (this.textBounds[0] / 2) + (lineHeight / 2) + 1;
+		int halfHeight = Math.round(lines.length * lineHeight * 0.75f) + (lineHeight / 2) + 1;
+
+		bounds[0] = x - halfWidth;
+		bounds[1] = y - halfHeight;
+		bounds[2] = x + halfWidth;
+		bounds[3] = y + halfHeight;
+	}
+
+	/**
+	 * draw the lines centered in the slot
+	 * @param renderer where to draw
+	 * @param brush how to write
+	 */
+	public void draw(Renderer renderer, Brush brush)
+	{
+		String[] lines = getLines();
+		int radius = ClockFace.getRadius(renderer.getWidth(), renderer.getHeight());
+		float x = (renderer.getWidth() / 2) + (this.slot.getX() * radius);
+		float y = (renderer.getHeight() / 2) + (this.slot.getY() * radius);
+		int lineHeight = measure(lines, renderer, brush);
+
+		// baseline of the first line, lines spaced by half a line
+		float baseline = y - ((lines.length * lineHeight * 1.5f) / 2) + lineHeight;
+
+		for(String line : lines)
+		{
+			renderer.getTextBounds(line, brush, this.textBounds);
+			renderer.drawText(line, x - (this.textBounds[0] / 2), baseline, brush);
+			baseline += lineHeight * 1.5f;
+		}
+	}
+
+	/**
+	 * @return height of the tallest line, the text bounds receive the width of the widest one
+	 */
+	private int measure(String[] lines, Renderer renderer, Brush brush)
+	{
+		int lineWidth = 0;
+		int lineHeight = 0;
+
+		for(String line : lines)
+		{
+			renderer.getTextBounds(line, brush, this.textBounds);
+			lineWidth = Math.max(lineWidth, this.textBounds[0]);
+			lineHeight = Math.max(lineHeight, this.textBounds[1]);
+		}
+
+		this.textBounds[0] = lineWidth;
+		this.textBounds[1] = lineHeight;
+
+		return lineHeight;
+	}
+
+	/**
+	 * next boundary of a cadence, in local time for cadences of an hour or more so that days start at midnight
+	 * @param timeMillis current time
+	 * @param cadence one of the constants
+	 * @param zone local time zone
+	 * @return first boundary strictly after the time
+	 */
+	public static long getNextBoundary(long timeMillis, long cadence, TimeZone zone)
+	{
+		long offset = cadence >= HOUR ? zone.getOffset(timeMillis) : 0;
+		long localTime = timeMillis + offset;
+
+		return (localTime - (localTime % cadence)) + cadence - offset;
+	}
+}
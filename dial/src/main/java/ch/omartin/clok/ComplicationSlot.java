@@ -0,0 +1,29 @@
+package ch.omartin.clok;
+
+/**
+ * places on the dial where a complication can be drawn, clear of the numbers and of the time
+ */
+public enum ComplicationSlot
+{
+	TOP_LEFT(-0.354f, -0.354f), TOP(0, -0.5f), TOP_RIGHT(0.354f, -0.354f), LEFT(-0.5f, 0), RIGHT(0.5f, 0);
+
+	// center of the slot, in radius units from the center of the dial
+	private final float x;
+	private final float y;
+
+	private ComplicationSlot(float x, float y)
+	{
+		this.x = x;
+		this.y = y;
+	}
+
+	public float getX()
+	{
+		return x;
+	}
+
+	public float getY()
+	{
+		return y;
+	}
+}
@@ -0,0 +1,59 @@
+package ch.omartin.clok;
+
+import java.util.Locale;
+
+/**
+ * time left until a moment, to the second
+ */
+public class CountdownComplication extends Complication
+{
+	private final long targetMillis;
+	private final String title;
+	private long remainingSeconds = -1;
+	private String[] lines = new String[0];
+
+	/**
+	 * @param targetMillis end of the countdown
+	 * @param title first line
+	 */
+	public CountdownComplication(ComplicationSlot slot, long targetMillis, String title)
+	{
+		super(slot, SECOND);
+
+		this.targetMillis = targetMillis;
+		this.title = title;
+	}
+
+	@Override
+	public boolean update(long timeMillis)
+	{
+		long remainingSeconds = Math.max(0, (this.targetMillis - timeMillis + 999) / 1_000);
+
+		if(remainingSeconds == this.remainingSeconds)
+		{
+			return false;
+		}
+
+		this.remainingSeconds = remainingSeconds;
+		long days = remainingSeconds / 86_400;
+		long hours = (remainingSeconds / 3_600) % 24;
+		long minutes = (remainingSeconds / 60) % 60;
+		long seconds = remainingSeconds % 60;
+		String remaining = String.format(Locale.getDefault(), "%d:%02d:%02d", hours, minutes, seconds);
+
+		if(days > 0)
+		{
+			remaining = days + "d " + remaining;
+		}
+
+		this.lines = new String[] {this.title, remaining};
+
+		return true;
+	}
+
+	@Override
+	protected String[] getLines()
+	{
+		return this.lines;
+	}
+}
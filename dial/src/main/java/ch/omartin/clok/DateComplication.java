@@ -0,0 +1,39 @@
+package ch.omartin.clok;
+
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * day of the week and day of the month
+ */
+public class DateComplication extends Complication
+{
+	private final SimpleDateFormat dayFormatter = new SimpleDateFormat("EEE", Locale.getDefault());
+	private final SimpleDateFormat dateFormatter = new SimpleDateFormat("d MMM", Locale.getDefault());
+	private final Date date = new Date();
+	private String[] lines = new String[0];
+
+	public DateComplication(ComplicationSlot slot)
+	{
+		super(slot, DAY);
+	}
+
+	@Override
+	public boolean update(long timeMillis)
+	{
+		this.date.setTime(timeMillis);
+		String[] lines = new String[] {this.dayFormatter.format(this.date), this.dateFormatter.format(this.date)};
+		boolean changed = !Arrays.equals(lines, this.lines);
+		this.lines = lines;
+
+		return changed;
+	}
+
+	@Override
+	protected String[] getLines()
+	{
+		return this.lines;
+	}
+}
@@ -0,0 +1,117 @@
+package ch.omartin.clok;
+
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * moon phase and illumination, read from a table computed once for the days to come
+ */
+public class MoonPhaseComplication extends Complication
+{
+	// mean length of a lunation, in days
+	static final double SYNODIC_MONTH = 29.530588853;
+	// a known new moon, 2000-01-06 18:14 UTC
+	static final long REFERENCE_NEW_MOON = 947_182_440_000L;
+	static final int TABLE_DAYS = 366;
+
+	private static final String[] PHASE_NAMES = {"new", "waxing crescent", "first quarter", "waxing gibbous",
+			"full", "waning gibbous", "last quarter", "waning crescent"};
+
+	private final TimeZone zone;
+	// local midnight of the first day of the table
+	private long tableStart = Long.MIN_VALUE;
+	private final byte[] phases = new byte[TABLE_DAYS];
+	private final byte[] illuminations = new byte[TABLE_DAYS];
+	private int day = -1;
+
+	public MoonPhaseComplication(ComplicationSlot slot, TimeZone zone)
+	{
+		super(slot, DAY);
+
+		this.zone = zone;
+	}
+
+	@Override
+	public boolean update(long timeMillis)
+	{
+		int day = getDayIndex(timeMillis);
+
+		if(day < 0 || day >= TABLE_DAYS)
+		{
+			fillTable(timeMillis);
+			this.day = -1;
+			day = getDayIndex(timeMillis);
+		}
+
+		boolean changed = this.phases[day] != getPhase() || this.illuminations[day] != getIllumination();
+		this.day = day;
+
+		return changed;
+	}
+
+	@Override
+	protected String[] getLines()
+	{
+		if(this.day < 0)
+		{
+			return new String[0];
+		}
+
+		return new String[] {PHASE_NAMES[getPhase()], String.format(Locale.getDefault(), "%d%%", getIllumination())};
+	}
+
+	private int getPhase()
+	{
+		return this.day < 0 ? -1 : this.phases[this.day];
+	}
+
+	private int getIllumination()
+	{
+		return this.day < 0 ? -1 : this.illuminations[this.day];
+	}
+
+	private int getDayIndex(long timeMillis)
+	{
+		if(this.tableStart == Long.MIN_VALUE)
+		{
+			return -1;
+		}
+
+		long localTime = timeMillis + this.zone.getOffset(timeMillis);
+		long localStart = this.tableStart + this.zone.getOffset(this.tableStart);
+
+		return (int) Math.floor((localTime - localStart) / (double) DAY);
+	}
+
+	/**
+	 * compute phase and illumination at local noon of each day, starting today
+	 */
+	private void fillTable(long timeMillis)
+	{
+		long localTime = timeMillis + this.zone.getOffset(timeMillis);
+		this.tableStart = (localTime - (localTime % DAY)) - this.zone.getOffset(timeMillis);
+
+		for(int i=0; i<TABLE_DAYS; i++)
+		{
+			long noon = this.tableStart + (i * DAY) + (DAY / 2);
+			double age = getAge(noon);
+			double illumination = (1 - Math.cos((2 * Math.PI * age) / SYNODIC_MONTH)) / 2;
+			// eighths of the lunation, centered on the principal phases
+			int phase = (int) Math.floor(((age / SYNODIC_MONTH) * 8) + 0.5) % 8;
+
+			this.phases[i] = (byte) phase;
+			this.illuminations[i] = (byte) Math.round(illumination * 100);
+		}
+	}
+
+	/**
+	 * @return days since the last new moon
+	 */
+	static double getAge(long timeMillis)
+	{
+		double days = (timeMillis - REFERENCE_NEW_MOON) / (double) DAY;
+		double age = days % SYNODIC_MONTH;
+
+		return age < 0 ? age + SYNODIC_MONTH : age;
+	}
+}
@@ -0,0 +1,44 @@
+package ch.omartin.clok;
+
+/**
+ * drawing backend of the dial, angles are in degrees clockwise
+ */
+public interface Renderer
+{
+	int getWidth();
+
+	int getHeight();
+
+	void save();
+
+	void restore();
+
+	void translate(float dx, float dy);
+
+	void rotate(float degrees);
+
+	void drawRect(float left, float top, float right, float bottom, Brush brush);
+
+	void drawCircle(float centerX, float centerY, float radius, Brush brush);
+
+	void drawLine(float startX, float startY, float endX, float endY, Brush brush);
+
+	/**
+	 * @param x left of the text
+	 * @param y baseline of the text
+	 */
+	void drawText(String text, float x, float y, Brush brush);
+
+	/**
+	 * tight bounds of the text
+	 * @param bounds receives width and height
+	 */
+	void getTextBounds(String text, Brush brush, int[] bounds);
+
+	/**
+	 * fill a pie slice centered on the origin
+	 * @param startDegrees start angle, clockwise from 12 o'clock
+	 * @param sweepDegrees clockwise extent
+	 */
+	void fillSector(float radius, float startDegrees, float sweepDegrees, Brush brush);
+}
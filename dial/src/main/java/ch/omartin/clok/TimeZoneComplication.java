@@ -0,0 +1,42 @@
+package ch.omartin.clok;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * time in a second time zone
+ */
+public class TimeZoneComplication extends Complication
+{
+	private final SimpleDateFormat timeFormatter = new SimpleDateFormat("H:mm", Locale.getDefault());
+	private final String name;
+	private final Date date = new Date();
+	private String time = "";
+
+	public TimeZoneComplication(ComplicationSlot slot, TimeZone zone)
+	{
+		super(slot, MINUTE);
+
+		this.timeFormatter.setTimeZone(zone);
+		this.name = zone.getDisplayName(false, TimeZone.SHORT, Locale.getDefault());
+	}
+
+	@Override
+	public boolean update(long timeMillis)
+	{
+		this.date.setTime(timeMillis);
+		String time = this.timeFormatter.format(this.date);
+		boolean changed = !time.equals(this.time);
+		this.time = time;
+
+		return changed;
+	}
+
+	@Override
+	protected String[] getLines()
+	{
+		return new String[] {this.name, this.time};
+	}
+}
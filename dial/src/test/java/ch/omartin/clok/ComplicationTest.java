@@ -0,0 +1,179 @@
+package ch.omartin.clok;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * boundaries of the cadences, the precomputed moon table and the redrawn area
+ */
+public class ComplicationTest
+{
+	private static final TimeZone ZURICH = TimeZone.getTimeZone("Europe/Zurich");
+
+	@Test
+	public void nextBoundary_isStrictlyAfter()
+	{
+		long time = getTime(2018, Calendar.MARCH, 14, 10, 20, 30) + 250;
+
+		assertEquals(time - 250 + Complication.SECOND, Complication.getNextBoundary(time, Complication.SECOND, ZURICH));
+		assertEquals(getTime(2018, Calendar.MARCH, 14, 10, 21, 0), Complication.getNextBoundary(time, Complication.MINUTE, ZURICH));
+
+		long boundary = getTime(2018, Calendar.MARCH, 14, 10, 21, 0);
+		assertEquals(boundary + Complication.MINUTE, Complication.getNextBoundary(boundary, Complication.MINUTE, ZURICH));
+	}
+
+	@Test
+	public void nextBoundary_dayStartsAtLocalMidnightAcrossDst()
+	{
+		// the clocks go forward at 02:00, the day lasts 23 hours
+		long noon = getTime(2018, Calendar.MARCH, 25, 12, 0, 0);
+
+		assertEquals(getTime(2018, Calendar.MARCH, 26, 0, 0, 0), Complication.getNextBoundary(noon, Complication.DAY, ZURICH));
+	}
+
+	@Test
+	public void moonPhase_fullMoon()
+	{
+		// full moon of 2018-01-31 at 14:27 in Zurich
+		MoonPhaseComplication moon = new MoonPhaseComplication(ComplicationSlot.TOP, ZURICH);
+		long time = getTime(2018, Calendar.JANUARY, 31, 14, 27, 0);
+
+		assertTrue(moon.update(time));
+		assertFalse(moon.update(time + Complication.HOUR));
+
+		String[] lines = moon.getLines();
+		assertEquals("full", lines[0]);
+		assertTrue(Integer.parseInt(lines[1].replace("%", "")) >= 98);
+	}
+
+	@Test
+	public void bounds_containDrawnLines()
+	{
+		long time = getTime(2018, Calendar.MARCH, 14, 10, 20, 30);
+		List<Complication> complications = new ArrayList<>();
+		complications.add(new DateComplication(ComplicationSlot.TOP_LEFT));
+		complications.add(new MoonPhaseComplication(ComplicationSlot.TOP, ZURICH));
+		complications.add(new TimeZoneComplication(ComplicationSlot.TOP_RIGHT, ZURICH));
+		complications.add(new CountdownComplication(ComplicationSlot.LEFT, time + (3 * Complication.DAY), "2018-03-17 10:20"));
+		complications.add(new CountdownComplication(ComplicationSlot.RIGHT, time + Complication.MINUTE, "a rather long countdown title"));
+
+		RecordingRenderer renderer = new RecordingRenderer(1080, 1920);
+		Brush brush = new Brush(ClockFace.BLACK, Brush.Style.FILL, 0, 40, true);
+		int[] bounds = new int[4];
+
+		for(Complication complication : complications)
+		{
+			complication.update(time);
+			complication.getBounds(renderer.getWidth(), renderer.getHeight(), renderer, brush, bounds);
+			renderer.texts.clear();
+			complication.draw(renderer, brush);
+
+			assertFalse(renderer.texts.isEmpty());
+
+			for(float[] text : renderer.texts)
+			{
+				assertTrue(complication.getClass().getSimpleName(), text[0] >= bounds[0] && text[1] >= bounds[1]
+						&& text[2] <= bounds[2] && text[3] <= bounds[3]);
+			}
+		}
+	}
+
+	private static long getTime(int year, int month, int day, int hours, int minutes, int seconds)
+	{
+		Calendar calendar = Calendar.getInstance(ZURICH);
+		calendar.clear();
+		calendar.set(year, month, day, hours, minutes, seconds);
+
+		return calendar.getTimeInMillis();
+	}
+
+	/**
+	 * keeps the extent of the drawn texts, as measured with a fixed advance per character
+	 */
+	private static class RecordingRenderer implements Renderer
+	{
+		private static final int ADVANCE = 24;
+		private static final int HEIGHT = 30;
+
+		private final int width;
+		private final int height;
+		private final List<float[]> texts = new ArrayList<>();
+
+		RecordingRenderer(int width, int height)
+		{
+			this.width = width;
+			this.height = height;
+		}
+
+		@Override
+		public int getWidth()
+		{
+			return this.width;
+		}
+
+		@Override
+		public int getHeight()
+		{
+			return this.height;
+		}
+
+		@Override
+		public void save()
+		{
+		}
+
+		@Override
+		public void restore()
+		{
+		}
+
+		@Override
+		public void translate(float dx, float dy)
+		{
+		}
+
+		@Override
+		public void rotate(float degrees)
+		{
+		}
+
+		@Override
+		public void drawRect(float left, float top, float right, float bottom, Brush brush)
+		{
+		}
+
+		@Override
+		public void drawCircle(float centerX, float centerY, float radius, Brush brush)
+		{
+		}
+
+		@Override
+		public void drawLine(float startX, float startY, float endX, float endY, Brush brush)
+		{
+		}
+
+		@Override
+		public void drawText(String text, float x, float y, Brush brush)
+		{
+			this.texts.add(new float[] {x, y - HEIGHT, x + (text.length() * ADVANCE), y});
+		}
+
+		@Override
+		public void getTextBounds(String text, Brush brush, int[] bounds)
+		{
+			bounds[0] = text.length() * ADVANCE;
+			bounds[1] = HEIGHT;
+		}
+
+		@Override
+		public void fillSector(float radius, float startDegrees, float sweepDegrees, Brush brush)
+		{
+		}
+	}
+}
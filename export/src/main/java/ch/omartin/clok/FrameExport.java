@@ -0,0 +1,258 @@
+package ch.omartin.clok;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javax.imageio.ImageIO;
+
+/**
+ * renders a full day of frames to a PNG sequence, in parallel, without android
+ */
+public class FrameExport
+{
+	private static final int SECONDS_PER_DAY = 86_400;
+	// frames rendered by one task, big enough to reuse the image and the face
+	private static final int FRAMES_PER_TASK = 32;
+
+	private final File directory;
+	private final int width;
+	private final int height;
+	private final int step;
+	private final long dayStart;
+	private final TickMode tickMode;
+	private final boolean isInvertColors;
+	private final boolean isHourHandDrawn;
+	private final boolean isMinuteHandDrawn;
+	private final boolean isSecondHandDrawn;
+	private final float textSize;
+
+	private FrameExport(File directory, int width, int height, int step, long dayStart, TickMode tickMode,
+			boolean isInvertColors, boolean isHourHandDrawn, boolean isMinuteHandDrawn, boolean isSecondHandDrawn, float textSize)
+	{
+		this.directory = directory;
+		this.width = width;
+		this.height = height;
+		this.step = step;
+		this.dayStart = dayStart;
+		this.tickMode = tickMode;
+		this.isInvertColors = isInvertColors;
+		this.isHourHandDrawn = isHourHandDrawn;
+		this.isMinuteHandDrawn = isMinuteHandDrawn;
+		this.isSecondHandDrawn = isSecondHandDrawn;
+		this.textSize = textSize;
+	}
+
+	public static void main(String[] args)
+	{
+		if(args.length == 0)
+		{
+			usage();
+			return;
+		}
+
+		File directory = new File(args[0]);
+		int width = 1080;
+		int height = 1080;
+		int step = 1;
+		int threads = Runtime.getRuntime().availableProcessors();
+		float textSize = 48;
+		TickMode tickMode = TickMode.MODE_12;
+		boolean isInvertColors = false;
+		boolean isHourHandDrawn = true;
+		boolean isMinuteHandDrawn = true;
+		boolean isSecondHandDrawn = true;
+		Date day = new Date();
+
+		try
+		{
+			for(int i=1; i<args.length; i++)
+			{
+				switch(args[i])
+				{
+					case "--size":
+						String[] size = args[++i].split("x");
+						width = Integer.parseInt(size[0]);
+						height = Integer.parseInt(size[1]);
+						break;
+					case "--step":
+						step = Integer.parseInt(args[++i]);
+						break;
+					case "--threads":
+						threads = Integer.parseInt(args[++i]);
+						break;
+					case "--text-size":
+						textSize = Float.parseFloat(args[++i]);
+						break;
+					case "--date":
+						day = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).parse(args[++i]);
+						break;
+					case "--24":
+						tickMode = TickMode.MODE_24;
+						break;
+					case "--invert":
+						isInvertColors = true;
+						break;
+					case "--no-hours":
+						isHourHandDrawn = false;
+						break;
+					case "--no-minutes":
+						isMinuteHandDrawn = false;
+						break;
+					case "--no-seconds":
+						isSecondHandDrawn = false;
+						break;
+					default:
+						throw new IllegalArgumentException("unknown option : " + args[i]);
+				}
+			}
+
+			if(width <= 0 || height <= 0)
+			{
+				throw new IllegalArgumentException("size must be positive : " + width + "x" + height);
+			}
+
+			if(step <= 0 || step > SECONDS_PER_DAY)
+			{
+				throw new IllegalArgumentException("step must be between 1 and " + SECONDS_PER_DAY + " : " + step);
+			}
+
+			if(threads <= 0)
+			{
+				throw new IllegalArgumentException("threads must be positive : " + threads);
+			}
+
+			if(textSize <= 0)
+			{
+				throw new IllegalArgumentException("text size must be positive : " + textSize);
+			}
+		}
+		catch(ParseException | RuntimeException ex)
+		{
+			System.err.println(ex.getMessage());
+			usage();
+			System.exit(1);
+		}
+
+		if(!directory.isDirectory() && !directory.mkdirs())
+		{
+			System.err.println("could not create " + directory);
+			System.exit(1);
+		}
+
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTime(day);
+		calendar.set(Calendar.HOUR_OF_DAY, 0);
+		calendar.set(Calendar.MINUTE, 0);
+		calendar.set(Calendar.SECOND, 0);
+		calendar.set(Calendar.MILLISECOND, 0);
+
+		FrameExport export = new FrameExport(directory, width, height, step, calendar.getTimeInMillis(), tickMode,
+				isInvertColors, isHourHandDrawn, isMinuteHandDrawn, isSecondHandDrawn, textSize);
+		int nbrFrames = getNbrFrames(calendar, step);
+		long start = System.nanoTime();
+
+		new ForkJoinPool(threads).invoke(export.new FrameTask(0, nbrFrames));
+
+		System.out.println(nbrFrames + " frames in " + ((System.nanoTime() - start) / 1_000_000) + " ms to " + directory);
+	}
+
+	private static void usage()
+	{
+		System.err.println("usage : FrameExport <directory> [--size WxH] [--step seconds] [--date yyyy-MM-dd] [--24] [--invert]"
+				+ " [--no-hours] [--no-minutes] [--no-seconds] [--text-size px] [--threads n]");
+	}
+
+	/**
+	 * number of frames up to the next local midnight, days when the clocks change last 23 or 25 hours
+	 * @param dayStart local midnight of the day, left unchanged
+	 * @param step seconds between frames
+	 */
+	static int getNbrFrames(Calendar dayStart, int step)
+	{
+		Calendar dayEnd = (Calendar) dayStart.clone();
+		dayEnd.add(Calendar.DAY_OF_MONTH, 1);
+
+		long daySeconds = (dayEnd.getTimeInMillis() - dayStart.getTimeInMillis()) / 1_000;
+
+		return (int) ((daySeconds + step - 1) / step);
+	}
+
+	/**
+	 * position of the hands at a time, from the same local fields as the written time so that both agree on days
+	 * when the clocks change
+	 * @param calendar time to show
+	 * @param tickMode 12 or 24 hour mode
+	 * @return hours, minutes and seconds
+	 */
+	static int[] getHands(Calendar calendar, TickMode tickMode)
+	{
+		int hours = calendar.get(tickMode == TickMode.MODE_24 ? Calendar.HOUR_OF_DAY : Calendar.HOUR);
+
+		return new int[] {hours, calendar.get(Calendar.MINUTE), calendar.get(Calendar.SECOND)};
+	}
+
+	/**
+	 * renders frames from (inclusive) to (exclusive), split until small enough
+	 */
+	private class FrameTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+
+		FrameTask(int from, int to)
+		{
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if(this.to - this.from > FRAMES_PER_TASK)
+			{
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll(new FrameTask(this.from, middle), new FrameTask(middle, this.to));
+				return;
+			}
+
+			// faces and images are not thread safe, one of each per task
+			ClockFace clockFace = new ClockFace(tickMode, isInvertColors, isHourHandDrawn, isMinuteHandDrawn, isSecondHandDrawn, textSize);
+			BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+			Graphics2D graphics = image.createGraphics();
+			Renderer renderer = new Graphics2DRenderer(graphics, width, height);
+			Calendar calendar = Calendar.getInstance();
+
+			try
+			{
+				for(int i=this.from; i<this.to; i++)
+				{
+					int secondOfDay = i * step;
+					calendar.setTimeInMillis(dayStart + (secondOfDay * 1_000L));
+					int[] hands = getHands(calendar, tickMode);
+
+					clockFace.draw(renderer, hands[0], hands[1], hands[2], calendar.getTime());
+					ImageIO.write(image, "png", new File(directory, String.format(Locale.ROOT, "frame_%05d.png", i)));
+				}
+			}
+			catch(IOException iex)
+			{
+				throw new IllegalStateException("could not write frame", iex);
+			}
+			finally
+			{
+				graphics.dispose();
+			}
+		}
+	}
+}
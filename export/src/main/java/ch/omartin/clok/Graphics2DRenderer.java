@@ -0,0 +1,184 @@
+package ch.omartin.clok;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * renderer drawing with java2d, for use on a plain JVM
+ */
+class Graphics2DRenderer implements Renderer
+{
+	private final Graphics2D graphics;
+	private final int width;
+	private final int height;
+	private final Deque<AffineTransform> transforms = new ArrayDeque<>();
+	private final Map<Brush, Pen> pens = new HashMap<>();
+
+	private final Line2D.Float line = new Line2D.Float();
+	private final Ellipse2D.Float ellipse = new Ellipse2D.Float();
+	private final Rectangle2D.Float rectangle = new Rectangle2D.Float();
+	private final Arc2D.Float arc = new Arc2D.Float(Arc2D.PIE);
+
+	Graphics2DRenderer(Graphics2D graphics, int width, int height)
+	{
+		this.graphics = graphics;
+		this.width = width;
+		this.height = height;
+	}
+
+	@Override
+	public int getWidth()
+	{
+		return this.width;
+	}
+
+	@Override
+	public int getHeight()
+	{
+		return this.height;
+	}
+
+	@Override
+	public void save()
+	{
+		this.transforms.push(this.graphics.getTransform());
+	}
+
+	@Override
+	public void restore()
+	{
+		this.graphics.setTransform(this.transforms.pop());
+	}
+
+	@Override
+	public void translate(float dx, float dy)
+	{
+		this.graphics.translate(dx, dy);
+	}
+
+	@Override
+	public void rotate(float degrees)
+	{
+		this.graphics.rotate(Math.toRadians(degrees));
+	}
+
+	@Override
+	public void drawRect(float left, float top, float right, float bottom, Brush brush)
+	{
+		this.rectangle.setRect(left, top, right - left, bottom - top);
+		paint(this.rectangle, brush, brush.getStyle() == Brush.Style.FILL);
+	}
+
+	@Override
+	public void drawCircle(float centerX, float centerY, float radius, Brush brush)
+	{
+		this.ellipse.setFrame(centerX - radius, centerY - radius, 2 * radius, 2 * radius);
+		paint(this.ellipse, brush, brush.getStyle() == Brush.Style.FILL);
+	}
+
+	@Override
+	public void drawLine(float startX, float startY, float endX, float endY, Brush brush)
+	{
+		this.line.setLine(startX, startY, endX, endY);
+		paint(this.line, brush, false);
+	}
+
+	@Override
+	public void drawText(String text, float x, float y, Brush brush)
+	{
+		Pen pen = getPen(brush);
+		pen.apply(this.graphics);
+		this.graphics.drawString(text, x, y);
+	}
+
+	@Override
+	public void getTextBounds(String text, Brush brush, int[] bounds)
+	{
+		Font font = getPen(brush).font;
+		FontRenderContext context = new FontRenderContext(null, brush.isAntiAlias(), true);
+		Rectangle pixels = font.createGlyphVector(context, text).getPixelBounds(context, 0, 0);
+
+		bounds[0] = pixels.width;
+		bounds[1] = pixels.height;
+	}
+
+	@Override
+	public void fillSector(float radius, float startDegrees, float sweepDegrees, Brush brush)
+	{
+		// java2d arcs start at 3 o'clock and go counterclockwise
+		this.arc.setArc(-radius, -radius, 2 * radius, 2 * radius, 90 - startDegrees, -sweepDegrees, Arc2D.PIE);
+		paint(this.arc, brush, true);
+	}
+
+	private void paint(Shape shape, Brush brush, boolean isFilled)
+	{
+		getPen(brush).apply(this.graphics);
+
+		if(isFilled)
+		{
+			this.graphics.fill(shape);
+		}
+		else
+		{
+			this.graphics.draw(shape);
+		}
+	}
+
+	private Pen getPen(Brush brush)
+	{
+		Pen pen = this.pens.get(brush);
+
+		if(pen == null)
+		{
+			pen = new Pen(brush);
+			this.pens.put(brush, pen);
+		}
+
+		return pen;
+	}
+
+	/**
+	 * java2d state matching a brush
+	 */
+	private static class Pen
+	{
+		private final Color color;
+		private final BasicStroke stroke;
+		private final Font font;
+		private final Object antiAlias;
+
+		Pen(Brush brush)
+		{
+			this.color = new Color(brush.getColor(), true);
+			// android strokes have butt caps and miter joins by default
+			this.stroke = new BasicStroke(brush.getStrokeWidth(), BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER);
+			this.font = new Font(Font.SANS_SERIF, Font.PLAIN, 1).deriveFont(Math.max(1, brush.getTextSize()));
+			this.antiAlias = brush.isAntiAlias() ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF;
+		}
+
+		void apply(Graphics2D graphics)
+		{
+			graphics.setColor(this.color);
+			graphics.setStroke(this.stroke);
+			graphics.setFont(this.font);
+			graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, this.antiAlias);
+			graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, this.antiAlias == RenderingHints.VALUE_ANTIALIAS_ON
+					? RenderingHints.VALUE_TEXT_ANTIALIAS_ON : RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+		}
+	}
+}
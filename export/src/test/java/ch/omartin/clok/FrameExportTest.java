@@ -0,0 +1,92 @@
+package ch.omartin.clok;
+
+import org.junit.Test;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * frames rendered without android, as compared pixel by pixel on build servers
+ */
+public class FrameExportTest
+{
+	private static final int SIZE = 400;
+	private static final int CENTER = SIZE / 2;
+	private static final int RADIUS = ClockFace.getRadius(SIZE, SIZE);
+
+	@Test
+	public void hands_atExpectedPixels()
+	{
+		ClockFace clockFace = new ClockFace(TickMode.MODE_12, false, true, true, false, 24);
+		BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D graphics = image.createGraphics();
+		Renderer renderer = new Graphics2DRenderer(graphics, SIZE, SIZE);
+
+		// 3:00, hour hand to the right and minute hand up
+		clockFace.drawBackground(renderer);
+		clockFace.drawHands(renderer, 3, 0, 0);
+		graphics.dispose();
+
+		assertEquals(ClockFace.BLACK, image.getRGB(CENTER + (RADIUS / 3), CENTER));
+		assertEquals(ClockFace.BLACK, image.getRGB(CENTER, CENTER - (RADIUS / 2)));
+		assertEquals(ClockFace.WHITE, image.getRGB(CENTER - (RADIUS / 3), CENTER));
+		assertEquals(ClockFace.WHITE, image.getRGB(CENTER, CENTER + (RADIUS / 2)));
+	}
+
+	@Test
+	public void frame_rendersIdentically()
+	{
+		Date date = new Date(1_524_000_000_000L);
+
+		assertArrayEquals(render(date), render(date));
+	}
+
+	@Test
+	public void hands_followLocalTimeOnDstDay()
+	{
+		Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("Europe/Zurich"));
+		calendar.clear();
+		calendar.set(2018, Calendar.MARCH, 25, 0, 0, 0);
+
+		// 4 hours after midnight, the clocks went forward at 02:00
+		calendar.setTimeInMillis(calendar.getTimeInMillis() + (4 * 3_600_000L));
+
+		assertArrayEquals(new int[] {5, 0, 0}, FrameExport.getHands(calendar, TickMode.MODE_24));
+	}
+
+	@Test
+	public void nbrFrames_followLocalDayLength()
+	{
+		Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("Europe/Zurich"));
+		calendar.clear();
+
+		calendar.set(2018, Calendar.MARCH, 14, 0, 0, 0);
+		assertEquals(24, FrameExport.getNbrFrames(calendar, 3_600));
+		assertEquals(86_400, FrameExport.getNbrFrames(calendar, 1));
+
+		// the clocks go forward, then back
+		calendar.set(2018, Calendar.MARCH, 25, 0, 0, 0);
+		assertEquals(23, FrameExport.getNbrFrames(calendar, 3_600));
+
+		calendar.set(2018, Calendar.OCTOBER, 28, 0, 0, 0);
+		assertEquals(25, FrameExport.getNbrFrames(calendar, 3_600));
+		assertEquals(4, FrameExport.getNbrFrames(calendar, 7 * 3_600));
+	}
+
+	private static int[] render(Date date)
+	{
+		ClockFace clockFace = new ClockFace(TickMode.MODE_24, false, true, true, true, 24);
+		BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D graphics = image.createGraphics();
+
+		clockFace.draw(new Graphics2DRenderer(graphics, SIZE, SIZE), 10, 10, 30, date);
+		graphics.dispose();
+
+		return image.getRGB(0, 0, SIZE, SIZE, null, 0, SIZE);
+	}
+}